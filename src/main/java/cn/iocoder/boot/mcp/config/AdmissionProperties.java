@@ -0,0 +1,46 @@
+package cn.iocoder.boot.mcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AgenticRag调用准入调度配置
+ * 
+ * @author backend
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mcp.admission")
+public class AdmissionProperties {
+
+    /**
+     * 最大并发调用数
+     */
+    private int maxConcurrent = 16;
+
+    /**
+     * 每个优先级的最大排队数，超出后直接拒绝（负载削峰）
+     */
+    private int queueCapacity = 200;
+
+    /**
+     * 租户默认权重
+     */
+    private int defaultWeight = 1;
+
+    /**
+     * 租户权重，权重越大每轮可连续获得的调用配额越多
+     */
+    private Map<String, Integer> tenantWeights = new HashMap<>();
+
+    /**
+     * 获取租户权重
+     */
+    public int weightOf(String tenant) {
+        return Math.max(1, tenantWeights.getOrDefault(tenant, defaultWeight));
+    }
+}
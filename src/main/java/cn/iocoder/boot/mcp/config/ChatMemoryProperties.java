@@ -0,0 +1,46 @@
+package cn.iocoder.boot.mcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 多轮对话会话记忆配置
+ * 
+ * @author backend
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mcp.chat.memory")
+public class ChatMemoryProperties {
+
+    /**
+     * 最大会话数，超出后淘汰最久未使用的会话
+     */
+    private int maxSessions = 10_000;
+
+    /**
+     * 所有会话编码后的总字节上限
+     */
+    private long maxTotalBytes = 64L * 1024 * 1024;
+
+    /**
+     * 单会话的估算token上限，超出后将较早的消息压缩为摘要
+     */
+    private int maxTokensPerSession = 4_000;
+
+    /**
+     * 每次检索返回的最大消息数
+     */
+    private int retrieveSize = 100;
+
+    /**
+     * 摘要中每条历史消息保留的字符数
+     */
+    private int summaryCharsPerMessage = 80;
+
+    /**
+     * 是否将会话数据存放在堆外内存
+     */
+    private boolean offHeap = false;
+}
@@ -0,0 +1,61 @@
+package cn.iocoder.boot.mcp.config;
+
+import cn.iocoder.boot.mcp.service.RoutingChatModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 对话模型路由配置
+ * 启用后以RoutingChatModel作为首选ChatModel，ChatClient的所有对话都经过路由；
+ * 首选模型始终注册，运行时按mcp.chat.routing.enabled决定是否路由，AOT构建（fast-startup）后仍可通过环境变量切换
+ *
+ * @author backend
+ */
+@Configuration
+@Slf4j
+public class ChatRoutingConfig {
+
+    /**
+     * 未启用路由时直接返回OpenAiChatModel
+     */
+    @Bean
+    @Primary
+    public ChatModel routingChatModel(OpenAiChatModel openAiChatModel,
+                                             ChatRoutingProperties properties,
+                                             MeterRegistry meterRegistry,
+                                             ObjectProvider<ToolCallingManager> toolCallingManager,
+                                             @Value("${spring.ai.openai.api-key:}") String defaultApiKey) {
+        if (!properties.isEnabled()) {
+            return openAiChatModel;
+        }
+        Map<String, ChatModel> targets = new LinkedHashMap<>();
+        for (ChatRoutingProperties.Route route : properties.getRoutes()) {
+            ChatModel base = openAiChatModel;
+            if (StringUtils.hasText(route.getBaseUrl())) {
+                String apiKey = StringUtils.hasText(route.getApiKey()) ? route.getApiKey() : defaultApiKey;
+                base = new OpenAiChatModel(new OpenAiApi(route.getBaseUrl(), apiKey),
+                        OpenAiChatOptions.builder().model(route.getModel()).build());
+            }
+            targets.put(route.getName(), RoutingChatModel.pinned(base, route.getModel()));
+            log.info("模型路由: {} -> {}{}，SLO: {}，降级: {}", route.getName(), route.getModel(),
+                    StringUtils.hasText(route.getBaseUrl()) ? " @ " + route.getBaseUrl() : "",
+                    route.getSlo(), route.getFallback());
+        }
+        return new RoutingChatModel(properties, targets, meterRegistry,
+                toolCallingManager.getIfAvailable(() -> ToolCallingManager.builder().build()));
+    }
+}
@@ -0,0 +1,97 @@
+package cn.iocoder.boot.mcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 对话模型路由配置
+ * 
+ * @author backend
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mcp.chat.routing")
+public class ChatRoutingProperties {
+
+    /**
+     * 是否启用模型路由，关闭时直接使用spring.ai.openai.chat配置的单一模型
+     */
+    private boolean enabled = false;
+
+    /**
+     * 延迟统计的滑动时间窗口，窗口外的样本不参与分位数计算
+     */
+    private Duration window = Duration.ofSeconds(60);
+
+    /**
+     * 窗口内样本数少于该值时沿用上一次的判定结果，冷启动时视为满足SLO
+     */
+    private int minSamples = 10;
+
+    /**
+     * 超出SLO的路由的半开探测间隔，每个间隔放行一个请求以积累新样本
+     */
+    private Duration probeInterval = Duration.ofSeconds(5);
+
+    /**
+     * 与SLO比较的延迟分位数
+     */
+    private double percentile = 0.95;
+
+    /**
+     * 路由列表，按优先顺序排列
+     */
+    private List<Route> routes = new ArrayList<>();
+
+    /**
+     * 单条路由
+     */
+    @Data
+    public static class Route {
+
+        /**
+         * 路由名称，用作指标标签和降级目标引用
+         */
+        private String name;
+
+        /**
+         * 实际调用的模型名称
+         */
+        private String model;
+
+        /**
+         * OpenAI兼容接口地址，用于接入本地部署的替代模型；为空时使用spring.ai.openai配置的接口
+         */
+        private String baseUrl;
+
+        /**
+         * 替代模型接口的API Key，为空时沿用spring.ai.openai.api-key
+         */
+        private String apiKey;
+
+        /**
+         * 可处理的最大估算提示token数
+         */
+        private int maxPromptTokens = Integer.MAX_VALUE;
+
+        /**
+         * 是否支持工具调用
+         */
+        private boolean tools = true;
+
+        /**
+         * 延迟SLO，窗口内延迟分位数超过该值时改走降级路由
+         */
+        private Duration slo = Duration.ofSeconds(10);
+
+        /**
+         * 超出SLO或调用失败时的降级路由名称
+         */
+        private String fallback;
+    }
+}
@@ -0,0 +1,36 @@
+package cn.iocoder.boot.mcp.config;
+
+import cn.iocoder.boot.mcp.service.AgenticRagMcpTools;
+import io.modelcontextprotocol.server.McpAsyncServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+
+/**
+ * 快速启动配置
+ * 配合fast-startup profile的懒加载使用，保证工具调用链路上的关键Bean仍在启动时创建
+ *
+ * @author backend
+ */
+@Configuration
+@Slf4j
+public class FastStartupConfig {
+
+    /**
+     * 懒加载时仍需提前初始化的Bean：MCP服务器、路由、工具及其依赖
+     * MCP客户端自动配置等非关键Bean保持懒加载，首次使用时再创建
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter eagerToolPathBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                McpAsyncServer.class,
+                RouterFunction.class,
+                ToolCallbackProvider.class,
+                AgenticRagMcpTools.class,
+                WebClient.class);
+    }
+}
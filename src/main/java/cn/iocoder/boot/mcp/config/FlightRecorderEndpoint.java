@@ -0,0 +1,151 @@
+package cn.iocoder.boot.mcp.config;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按需JFR录制端点
+ * 查看录制状态，start/stop/dump 控制录制，无需重启实例；
+ * 写操作没有鉴权，默认只通过JMX暴露，HTTP暴露（/actuator/jfr）需管理端口已隔离并加鉴权
+ *
+ * @author backend
+ */
+@Slf4j
+@Component
+@Endpoint(id = "jfr")
+public class FlightRecorderEndpoint {
+
+    private static final String RECORDING_NAME = "mcp-on-demand";
+
+    /**
+     * 允许的JFR预设配置，不接受.jfc路径，避免写操作让服务端解析任意文件
+     */
+    private static final Set<String> PRESET_SETTINGS = Set.of("default", "profile");
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Value("${mcp.jfr.settings:profile}")
+    private String defaultSettings;
+
+    @Value("${mcp.jfr.max-age:10m}")
+    private Duration defaultMaxAge;
+
+    @Value("${mcp.jfr.dump-dir:${java.io.tmpdir}}")
+    private String dumpDir;
+
+    private Recording recording;
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("state", recording.getState().name());
+        status.put("name", recording.getName());
+        status.put("startTime", recording.getStartTime());
+        status.put("maxAge", recording.getMaxAge());
+        status.put("size", recording.getSize());
+        return status;
+    }
+
+    /**
+     * 控制录制
+     *
+     * @param action start / stop / dump
+     * @param settings JFR预设配置名称（default / profile），仅start使用
+     * @param maxAge 录制保留的最长时间，如 5m，仅start使用
+     */
+    @WriteOperation
+    public synchronized Map<String, Object> control(@Selector String action,
+                                                    @Nullable String settings,
+                                                    @Nullable String maxAge) throws IOException, ParseException {
+        return switch (action) {
+            case "start" -> start(settings, maxAge);
+            case "stop" -> stop();
+            case "dump" -> dump();
+            default -> throw new IllegalArgumentException("不支持的操作: " + action);
+        };
+    }
+
+    private Map<String, Object> start(String settings, String maxAge) throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("JFR录制已在进行中");
+        }
+        closeRecording();
+
+        String settingsName = StringUtils.hasText(settings) ? settings : defaultSettings;
+        if (!PRESET_SETTINGS.contains(settingsName)) {
+            throw new IllegalArgumentException("不支持的JFR配置: " + settingsName + "，可选: " + PRESET_SETTINGS);
+        }
+        recording = new Recording(Configuration.getConfiguration(settingsName));
+        recording.setName(RECORDING_NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(StringUtils.hasText(maxAge) ? DurationStyle.detectAndParse(maxAge) : defaultMaxAge);
+        recording.start();
+        log.info("JFR录制已开始: settings={}, maxAge={}", settingsName, recording.getMaxAge());
+        return status();
+    }
+
+    /**
+     * 停止录制并落盘
+     */
+    private Map<String, Object> stop() throws IOException {
+        Map<String, Object> result = dump();
+        recording.stop();
+        closeRecording();
+        result.put("state", RecordingState.STOPPED.name());
+        log.info("JFR录制已停止");
+        return result;
+    }
+
+    /**
+     * 将当前录制内容写入文件，录制继续进行
+     */
+    private Map<String, Object> dump() throws IOException {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            throw new IllegalStateException("当前没有进行中的JFR录制");
+        }
+        Path directory = Files.createDirectories(Path.of(dumpDir));
+        Path file = directory.resolve("mcp-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+        recording.dump(file);
+        log.info("JFR录制已导出: {}", file);
+
+        Map<String, Object> result = status();
+        result.put("file", file.toAbsolutePath().toString());
+        result.put("fileSize", Files.size(file));
+        return result;
+    }
+
+    @PreDestroy
+    public synchronized void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
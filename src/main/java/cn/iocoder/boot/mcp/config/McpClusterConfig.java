@@ -0,0 +1,51 @@
+package cn.iocoder.boot.mcp.config;
+
+import cn.iocoder.boot.mcp.service.InMemorySessionRoutingBackplane;
+import cn.iocoder.boot.mcp.service.SessionRoutingBackplane;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.UUID;
+
+/**
+ * MCP服务器集群配置
+ * 启用后SSE会话登记到路由背板，消息请求可落在任意节点；
+ * 过滤器始终注册，运行时按mcp.cluster.enabled决定是否生效，AOT构建（fast-startup）后仍可通过环境变量切换
+ *
+ * @author backend
+ */
+@Configuration
+@Slf4j
+public class McpClusterConfig {
+
+    /**
+     * 默认使用进程内背板，多机部署时提供自定义SessionRoutingBackplane Bean替换
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public SessionRoutingBackplane sessionRoutingBackplane() {
+        log.info("使用进程内MCP会话路由背板");
+        return InMemorySessionRoutingBackplane.shared();
+    }
+
+    @Bean
+    public McpSessionRoutingFilter mcpSessionRoutingFilter(
+            SessionRoutingBackplane sessionRoutingBackplane,
+            WebClient.Builder webClientBuilder,
+            @Value("${mcp.cluster.enabled:false}") boolean enabled,
+            @Value("${mcp.cluster.node-id:}") String nodeId,
+            @Value("${mcp.cluster.advertised-url:}") String advertisedUrl,
+            @Value("${spring.ai.mcp.server.sse-endpoint:/sse}") String sseEndpoint,
+            @Value("${spring.ai.mcp.server.sse-message-endpoint:/mcp/message}") String messageEndpoint) {
+        String resolvedNodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        if (enabled) {
+            log.info("启用MCP集群模式，节点: {}", resolvedNodeId);
+        }
+        return new McpSessionRoutingFilter(enabled, sessionRoutingBackplane, webClientBuilder.build(), resolvedNodeId,
+                advertisedUrl, sseEndpoint, messageEndpoint);
+    }
+}
@@ -1,15 +1,21 @@
 package cn.iocoder.boot.mcp.config;
 
 import cn.iocoder.boot.mcp.service.AgenticRagMcpTools;
+import cn.iocoder.boot.mcp.service.CompactChatMemory;
+import cn.iocoder.boot.mcp.service.TrafficRecorder;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.tool.ToolCallbackProvider;
-import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
 
 /**
  * MCP配置类
@@ -23,35 +29,49 @@ public class McpConfig {
 
     /**
      * WebClient配置 - 用于调用外部API
+     * 开启压缩时请求携带Accept-Encoding: gzip, deflate，由上游按响应大小决定是否压缩，响应在连接层透明解压；
+     * 开启流量录制时同时录制上游响应（解压后的内容）
      */
     @Bean
-    public WebClient webClient() {
+    public WebClient webClient(TrafficRecorder trafficRecorder,
+                               @Value("${mcp.agenticrag.compression:true}") boolean compression) {
         return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create().compress(compression)))
                 .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(1024 * 1024))
+                .filter(trafficRecorder.upstreamFilter())
                 .build();
     }
 
     /**
      * 注册MCP工具回调提供器
-     * 基于ref_mcp_code的MethodToolCallbackProvider模式
+     * 工具定义沿用MethodToolCallbackProvider的生成方式，调用改为启动时预编译的MethodHandle调用器
      */
     @Bean
-    public ToolCallbackProvider toolCallbackProvider(ApplicationContext applicationContext) {
+    public ToolCallbackProvider toolCallbackProvider(ApplicationContext applicationContext, ObjectMapper objectMapper,
+                                                     TrafficRecorder trafficRecorder) {
         log.info("正在注册MCP工具: AgenticRagMcpTools");
         AgenticRagMcpTools agenticRagMcpTools = applicationContext.getBean(AgenticRagMcpTools.class);
-        return MethodToolCallbackProvider.builder()
-                .toolObjects(agenticRagMcpTools)
-                .build();
+        return PrecompiledToolCallbackProvider.of(objectMapper, trafficRecorder, AgenticRagMcpTools::isFailedResult,
+                agenticRagMcpTools);
     }
 
     /**
      * ChatClient.Builder配置
      * 基于ref_mcp_code的模式，为控制器提供ChatClient构建器
+     * 工具不作为默认工具注册，由ToolSelector按提示为每次对话选择
      */
     @Bean
-    public ChatClient.Builder chatClientBuilder(ChatModel chatModel, ToolCallbackProvider toolCallbackProvider) {
+    public ChatClient.Builder chatClientBuilder(ChatModel chatModel) {
         log.info("配置ChatClient.Builder，使用ChatModel: {}", chatModel.getClass().getSimpleName());
-        return ChatClient.builder(chatModel)
-                .defaultTools(toolCallbackProvider);
+        return ChatClient.builder(chatModel);
+    }
+
+    /**
+     * 多轮对话记忆顾问
+     * 按会话ID从紧凑会话记忆中取回历史消息，并在对话结束后写回
+     */
+    @Bean
+    public MessageChatMemoryAdvisor chatMemoryAdvisor(CompactChatMemory chatMemory, ChatMemoryProperties properties) {
+        return new MessageChatMemoryAdvisor(chatMemory, "default", properties.getRetrieveSize());
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,194 @@
+package cn.iocoder.boot.mcp.config;
+
+import cn.iocoder.boot.mcp.service.SessionRoutingBackplane;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MCP SSE会话跨节点路由过滤器
+ * 建立SSE连接时将会话登记到路由背板，消息请求落到非会话所在节点时转发到所在节点；
+ * 未启用集群模式时不登记节点，请求直接放行
+ *
+ * @author backend
+ */
+@Slf4j
+public class McpSessionRoutingFilter implements WebFilter, Ordered, ApplicationListener<WebServerInitializedEvent> {
+
+    /**
+     * SSE响应中携带的节点标识，可作为负载均衡的会话亲和令牌
+     */
+    public static final String NODE_HEADER = "X-Mcp-Node";
+
+    /**
+     * 已转发请求的标记头，防止转发循环
+     */
+    public static final String FORWARDED_HEADER = "X-Mcp-Forwarded-By";
+
+    private static final Pattern SESSION_ID = Pattern.compile("sessionId=([A-Za-z0-9\\-]+)");
+
+    private final boolean enabled;
+    private final SessionRoutingBackplane backplane;
+    private final WebClient forwardClient;
+    private final String nodeId;
+    private final String advertisedUrl;
+    private final String sseEndpoint;
+    private final String messageEndpoint;
+
+    public McpSessionRoutingFilter(boolean enabled, SessionRoutingBackplane backplane, WebClient forwardClient,
+                                   String nodeId, String advertisedUrl, String sseEndpoint, String messageEndpoint) {
+        this.enabled = enabled;
+        this.backplane = backplane;
+        this.forwardClient = forwardClient;
+        this.nodeId = nodeId;
+        this.advertisedUrl = advertisedUrl;
+        this.sseEndpoint = sseEndpoint;
+        this.messageEndpoint = messageEndpoint;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 10;
+    }
+
+    /**
+     * Web服务启动后登记本节点地址，未配置对外地址时使用实际监听端口
+     */
+    @Override
+    public void onApplicationEvent(WebServerInitializedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        String url = advertisedUrl != null && !advertisedUrl.isBlank()
+                ? advertisedUrl
+                : "http://localhost:" + event.getWebServer().getPort();
+        backplane.registerNode(nodeId, url);
+        log.info("MCP集群节点已登记: {} -> {}", nodeId, url);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        if (enabled) {
+            backplane.unregisterNode(nodeId);
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!enabled) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().pathWithinApplication().value();
+
+        if (HttpMethod.GET.equals(request.getMethod()) && sseEndpoint.equals(path)) {
+            exchange.getResponse().getHeaders().set(NODE_HEADER, nodeId);
+            return chain.filter(exchange.mutate().response(new SessionRegisteringResponse(exchange.getResponse())).build());
+        }
+
+        if (HttpMethod.POST.equals(request.getMethod()) && messageEndpoint.equals(path)
+                && !request.getHeaders().containsKey(FORWARDED_HEADER)) {
+            String sessionId = request.getQueryParams().getFirst("sessionId");
+            Optional<String> owner = sessionId == null ? Optional.empty() : backplane.ownerOf(sessionId);
+            if (owner.isPresent() && !nodeId.equals(owner.get())) {
+                Optional<String> ownerUrl = backplane.nodeUrl(owner.get());
+                if (ownerUrl.isPresent()) {
+                    return forward(exchange, ownerUrl.get());
+                }
+                log.warn("MCP会话所在节点地址未知: sessionId={}, node={}", sessionId, owner.get());
+            }
+        }
+
+        return chain.filter(exchange);
+    }
+
+    /**
+     * 将消息请求原样转发到会话所在节点，并回写其响应
+     */
+    private Mono<Void> forward(ServerWebExchange exchange, String ownerUrl) {
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpResponse response = exchange.getResponse();
+        String target = ownerUrl + request.getURI().getRawPath()
+                + (request.getURI().getRawQuery() != null ? "?" + request.getURI().getRawQuery() : "");
+        log.debug("转发MCP消息到会话所在节点: {}", target);
+
+        return forwardClient.post()
+                .uri(target)
+                .headers(headers -> {
+                    if (request.getHeaders().getContentType() != null) {
+                        headers.setContentType(request.getHeaders().getContentType());
+                    }
+                    headers.set(FORWARDED_HEADER, nodeId);
+                })
+                .body(BodyInserters.fromDataBuffers(request.getBody()))
+                .exchangeToMono(upstream -> {
+                    response.setStatusCode(upstream.statusCode());
+                    upstream.headers().contentType().ifPresent(response.getHeaders()::setContentType);
+                    return response.writeWith(upstream.bodyToFlux(DataBuffer.class));
+                });
+    }
+
+    /**
+     * 从SSE端点事件中识别会话ID并登记到路由背板，连接结束时注销
+     */
+    private final class SessionRegisteringResponse extends ServerHttpResponseDecorator {
+
+        private final AtomicReference<String> sessionId = new AtomicReference<>();
+
+        SessionRegisteringResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return super.writeWith(Flux.<DataBuffer>from(body).doOnNext(this::inspect))
+                    .doFinally(signal -> release());
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return super.writeAndFlushWith(Flux.from(body).map(part -> Flux.<DataBuffer>from(part).doOnNext(this::inspect)))
+                    .doFinally(signal -> release());
+        }
+
+        private void inspect(DataBuffer buffer) {
+            if (sessionId.get() != null) {
+                return;
+            }
+            String text = buffer.toString(buffer.readPosition(), buffer.readableByteCount(), StandardCharsets.UTF_8);
+            Matcher matcher = SESSION_ID.matcher(text);
+            if (matcher.find() && sessionId.compareAndSet(null, matcher.group(1))) {
+                backplane.registerSession(matcher.group(1), nodeId);
+                log.debug("MCP会话已登记: {} -> {}", matcher.group(1), nodeId);
+            }
+        }
+
+        private void release() {
+            String id = sessionId.getAndSet(null);
+            if (id != null) {
+                backplane.unregisterSession(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package cn.iocoder.boot.mcp.config;
+
+import cn.iocoder.boot.mcp.service.OutboundBufferGuard;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * MCP服务器SSE流的慢消费者保护
+ * SSE传输本身不限制发送缓冲，这里将每个事件合并为单个缓冲块后交给OutboundBufferGuard做有界缓冲
+ *
+ * @author backend
+ */
+@Slf4j
+@Component
+public class McpSseBackpressureFilter implements WebFilter, Ordered {
+
+    private final OutboundBufferGuard outboundBufferGuard;
+    private final OutboundBufferGuard.OverflowStrategy strategy;
+    private final String sseEndpoint;
+
+    public McpSseBackpressureFilter(OutboundBufferGuard outboundBufferGuard,
+                                    OutboundBufferProperties properties,
+                                    @Value("${spring.ai.mcp.server.sse-endpoint:/sse}") String sseEndpoint) {
+        this.outboundBufferGuard = outboundBufferGuard;
+        this.sseEndpoint = sseEndpoint;
+        if (properties.getMcpSseStrategy() == OutboundBufferGuard.OverflowStrategy.DROP) {
+            log.warn("MCP SSE流不允许丢弃消息，溢出策略DROP按DISCONNECT处理");
+            this.strategy = OutboundBufferGuard.OverflowStrategy.DISCONNECT;
+        } else {
+            this.strategy = properties.getMcpSseStrategy();
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 20;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!HttpMethod.GET.equals(request.getMethod())
+                || !sseEndpoint.equals(request.getPath().pathWithinApplication().value())) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange.mutate().response(new GuardedResponse(exchange.getResponse())).build());
+    }
+
+    private final class GuardedResponse extends ServerHttpResponseDecorator {
+
+        GuardedResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            Flux<DataBuffer> events = Flux.from(body).concatMap(event -> DataBufferUtils.join(event));
+            Flux<DataBuffer> guarded = outboundBufferGuard.guard(events, "mcp-sse", strategy,
+                    DataBuffer::readableByteCount, null, DataBufferUtils::release);
+            return super.writeAndFlushWith(guarded.map(Mono::just));
+        }
+    }
+}
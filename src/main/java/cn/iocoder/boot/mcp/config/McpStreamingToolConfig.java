@@ -0,0 +1,151 @@
+package cn.iocoder.boot.mcp.config;
+
+import cn.iocoder.boot.mcp.dto.BatchQueryResult;
+import cn.iocoder.boot.mcp.service.AgenticRagMcpTools;
+import cn.iocoder.boot.mcp.service.ToolInvocationContext;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.server.McpAsyncServer;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.spec.McpSchema;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 并发批量查询MCP工具配置
+ * 仅在ASYNC MCP服务器下注册，查询按有界并发执行，全部完成后在一个工具结果中按完成顺序返回，不是流式输出；
+ * 结果在内存中聚合，单次最多{@link #MAX_QUERIES}条。
+ * 当前MCP SDK（0.7.0）的工具回调拿不到调用方会话，loggingNotification会广播给节点上的所有会话，
+ * 因此不通过通知推送单条结果；需要逐条实时推送时使用 POST /api/mcp/batch/stream
+ * 
+ * @author backend
+ */
+@Configuration
+@Slf4j
+@RequiredArgsConstructor
+public class McpStreamingToolConfig {
+
+    /**
+     * 工具名称
+     */
+    public static final String TOOL_NAME = "concurrentBatchQueryWithAgenticRag";
+
+    /**
+     * 单次调用的最大查询数，限制内存中聚合的结果大小
+     */
+    public static final int MAX_QUERIES = 100;
+
+    private static final String INPUT_SCHEMA = """
+            {
+              "type": "object",
+              "properties": {
+                "queries": {
+                  "type": "array",
+                  "items": { "type": "string" },
+                  "description": "查询内容列表"
+                },
+                "timeoutMs": {
+                  "type": "integer",
+                  "description": "整批查询的时间预算（毫秒），超出后未完成的查询直接返回超时"
+                }
+              },
+              "required": ["queries"]
+            }
+            """;
+
+    private final AgenticRagMcpTools agenticRagMcpTools;
+    private final ObjectProvider<McpAsyncServer> mcpAsyncServerProvider;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 应用启动完成后向ASYNC MCP服务器注册并发批量查询工具
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerBatchTool() {
+        McpAsyncServer mcpAsyncServer = mcpAsyncServerProvider.getIfAvailable();
+        if (mcpAsyncServer == null) {
+            log.info("未检测到ASYNC MCP服务器，跳过注册并发批量查询工具");
+            return;
+        }
+        
+        McpSchema.Tool tool = new McpSchema.Tool(TOOL_NAME,
+                "并发批量查询AgenticRag服务，最多" + MAX_QUERIES + "条，全部完成后一次性返回所有结果（按完成顺序）",
+                INPUT_SCHEMA);
+        
+        mcpAsyncServer.addTool(new McpServerFeatures.AsyncToolRegistration(tool,
+                        this::concurrentBatchQuery))
+                .doOnSuccess(v -> log.info("已注册MCP并发批量工具: {}", TOOL_NAME))
+                .doOnError(e -> log.error("注册MCP并发批量工具失败: {}", e.getMessage()))
+                .subscribe();
+    }
+
+    /**
+     * 执行批量查询，每条结果作为一段文本内容，最后附汇总信息
+     */
+    private Mono<McpSchema.CallToolResult> concurrentBatchQuery(Map<String, Object> arguments) {
+        List<String> queries = extractQueries(arguments);
+        if (queries.isEmpty()) {
+            return Mono.just(new McpSchema.CallToolResult(
+                    List.of(new McpSchema.TextContent("查询列表不能为空")), true));
+        }
+        if (queries.size() > MAX_QUERIES) {
+            return Mono.just(new McpSchema.CallToolResult(List.of(new McpSchema.TextContent(
+                    "单次最多" + MAX_QUERIES + "条查询，本次" + queries.size() + "条；更大的批量请使用 POST /api/mcp/batch/stream")),
+                    true));
+        }
+        
+        ToolInvocationContext context = invocationContext(arguments);
+        return ToolInvocationContext.callWith(context, () -> agenticRagMcpTools.streamBatchQuery(queries))
+                .collectList()
+                .map(results -> {
+                    List<McpSchema.Content> contents = new ArrayList<>(results.size() + 1);
+                    results.forEach(result -> contents.add(new McpSchema.TextContent(toText(result))));
+                    long succeeded = results.stream().filter(BatchQueryResult::isSuccess).count();
+                    contents.add(new McpSchema.TextContent(String.format(
+                            "批量查询完成: 共%d条，成功%d条", queries.size(), succeeded)));
+                    return new McpSchema.CallToolResult(contents, false);
+                })
+                // 客户端断开或请求被丢弃时取消上下文，中止仍在进行的上游请求
+                .doOnCancel(context::cancel);
+    }
+
+    /**
+     * 工具调用不携带会话信息，按默认租户的批量调用处理，可选的timeoutMs作为整批的截止时间
+     */
+    private ToolInvocationContext invocationContext(Map<String, Object> arguments) {
+        ToolInvocationContext context = ToolInvocationContext.of(ToolInvocationContext.Priority.BATCH, null);
+        Object timeoutMs = arguments == null ? null : arguments.get("timeoutMs");
+        if (timeoutMs instanceof Number number && number.longValue() > 0) {
+            context = context.withBudget(Duration.ofMillis(number.longValue()));
+        }
+        return context;
+    }
+
+    private String toText(BatchQueryResult result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            return String.format("查询%d: %s\n结果: %s", result.getIndex(), result.getQuery(), result.getResult());
+        }
+    }
+
+    private List<String> extractQueries(Map<String, Object> arguments) {
+        Object queries = arguments == null ? null : arguments.get("queries");
+        if (!(queries instanceof List<?> list)) {
+            return List.of();
+        }
+        return list.stream()
+                .map(String::valueOf)
+                .toList();
+    }
+}
@@ -0,0 +1,56 @@
+package cn.iocoder.boot.mcp.config;
+
+import cn.iocoder.boot.mcp.service.OutboundBufferGuard;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 出站流缓冲配置
+ * 
+ * @author backend
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mcp.outbound")
+public class OutboundBufferProperties {
+
+    /**
+     * 每个连接允许缓冲的最大字节数
+     */
+    private int maxBufferedBytes = 256 * 1024;
+
+    /**
+     * 有待发送数据但客户端持续未读取的最长时间，超出后断开连接
+     */
+    private Duration writeTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 流式对话接口的溢出策略，仅支持DROP与DISCONNECT：
+     * 文本片段只能拼接，拼接不会减少字节数，COALESCE在这里等同于DISCONNECT
+     */
+    private OutboundBufferGuard.OverflowStrategy chatStrategy = OutboundBufferGuard.OverflowStrategy.DISCONNECT;
+
+    /**
+     * MCP服务器SSE流的溢出策略，JSON-RPC消息不可丢弃也不可合并，DROP按DISCONNECT处理，不支持COALESCE
+     */
+    private OutboundBufferGuard.OverflowStrategy mcpSseStrategy = OutboundBufferGuard.OverflowStrategy.DISCONNECT;
+
+    public void setChatStrategy(OutboundBufferGuard.OverflowStrategy chatStrategy) {
+        this.chatStrategy = requireNotCoalesce("mcp.outbound.chat-strategy", chatStrategy);
+    }
+
+    public void setMcpSseStrategy(OutboundBufferGuard.OverflowStrategy mcpSseStrategy) {
+        this.mcpSseStrategy = requireNotCoalesce("mcp.outbound.mcp-sse-strategy", mcpSseStrategy);
+    }
+
+    private static OutboundBufferGuard.OverflowStrategy requireNotCoalesce(String key,
+                                                                          OutboundBufferGuard.OverflowStrategy strategy) {
+        if (strategy == OutboundBufferGuard.OverflowStrategy.COALESCE) {
+            throw new IllegalArgumentException(key + "不支持COALESCE：该流的元素无法合并为更小的数据，可选DROP或DISCONNECT");
+        }
+        return strategy;
+    }
+}
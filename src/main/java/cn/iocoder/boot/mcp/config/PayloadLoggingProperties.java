@@ -0,0 +1,60 @@
+package cn.iocoder.boot.mcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 载荷日志配置
+ * 
+ * @author backend
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mcp.logging.payload")
+public class PayloadLoggingProperties {
+
+    /**
+     * 是否记录载荷
+     */
+    private boolean enabled = true;
+
+    /**
+     * 默认采样率（0~1）
+     */
+    private double defaultSampleRate = 0.1;
+
+    /**
+     * 按路由（工具名或接口）配置的采样率
+     */
+    private Map<String, Double> sampleRates = new HashMap<>();
+
+    /**
+     * 保留的头部字符数
+     */
+    private int headChars = 256;
+
+    /**
+     * 保留的尾部字符数
+     */
+    private int tailChars = 64;
+
+    /**
+     * 需要脱敏的正则表达式
+     */
+    private List<String> redactPatterns = new ArrayList<>(List.of(
+            "(?i)(api[-_]?key|token|password|secret)\"?\\s*[:=]\\s*\"?[^\"\\s,}]+",
+            "sk-[A-Za-z0-9]{8,}"));
+
+    /**
+     * 获取路由采样率
+     */
+    public double sampleRateOf(String route) {
+        return sampleRates.getOrDefault(route, defaultSampleRate);
+    }
+}
@@ -0,0 +1,221 @@
+package cn.iocoder.boot.mcp.config;
+
+import cn.iocoder.boot.mcp.service.McpFlightEvents;
+import cn.iocoder.boot.mcp.service.ToolInvocationContext;
+import cn.iocoder.boot.mcp.service.TrafficRecorder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.NullNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.model.function.FunctionCallback;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 预编译工具回调提供器
+ * 启动时为每个@Tool方法生成MethodHandle调用器、参数反序列化器，并复用MethodToolCallbackProvider生成的JSON Schema，
+ * 每次调用只需解析一次参数JSON并直接调用方法，不再经过反射和通用参数转换
+ *
+ * @author backend
+ */
+@Slf4j
+public class PrecompiledToolCallbackProvider implements ToolCallbackProvider {
+
+    private final ToolCallback[] toolCallbacks;
+
+    private PrecompiledToolCallbackProvider(ToolCallback[] toolCallbacks) {
+        this.toolCallbacks = toolCallbacks;
+    }
+
+    /**
+     * 为工具对象上的所有@Tool方法构建预编译回调
+     */
+    public static PrecompiledToolCallbackProvider of(ObjectMapper objectMapper, Object... toolObjects) {
+        return of(objectMapper, null, toolObjects);
+    }
+
+    /**
+     * 为工具对象上的所有@Tool方法构建预编译回调，并将每次调用写入流量录制；未抛出异常的调用均视为成功
+     */
+    public static PrecompiledToolCallbackProvider of(ObjectMapper objectMapper, TrafficRecorder trafficRecorder,
+                                                     Object... toolObjects) {
+        return of(objectMapper, trafficRecorder, result -> false, toolObjects);
+    }
+
+    /**
+     * 为工具对象上的所有@Tool方法构建预编译回调，并将每次调用写入流量录制
+     *
+     * @param failedResult 按工具方法的返回值判断调用是否失败，用于以返回值而非异常表示失败的工具
+     */
+    public static PrecompiledToolCallbackProvider of(ObjectMapper objectMapper, TrafficRecorder trafficRecorder,
+                                                     Predicate<Object> failedResult, Object... toolObjects) {
+        // 工具定义（名称、描述、Schema）与原有注册方式保持一致，只在启动时生成一次
+        Map<String, ToolCallback> reflective = new HashMap<>();
+        for (FunctionCallback callback : MethodToolCallbackProvider.builder().toolObjects(toolObjects).build().getToolCallbacks()) {
+            reflective.put(callback.getName(), (ToolCallback) callback);
+        }
+
+        List<ToolCallback> callbacks = new ArrayList<>();
+        for (Object toolObject : toolObjects) {
+            Class<?> toolClass = ClassUtils.getUserClass(toolObject);
+            for (Method method : toolClass.getMethods()) {
+                Tool tool = method.getAnnotation(Tool.class);
+                if (tool == null) {
+                    continue;
+                }
+                String name = StringUtils.hasText(tool.name()) ? tool.name() : method.getName();
+                ToolCallback definition = reflective.get(name);
+                if (definition == null) {
+                    throw new IllegalStateException("未找到工具定义: " + name);
+                }
+                callbacks.add(new PrecompiledToolCallback(definition.getToolDefinition(), definition.getToolMetadata(),
+                        method, toolObject, objectMapper, trafficRecorder, failedResult));
+                log.debug("预编译工具调用器: {}", name);
+            }
+        }
+        return new PrecompiledToolCallbackProvider(callbacks.toArray(new ToolCallback[0]));
+    }
+
+    @Override
+    public ToolCallback[] getToolCallbacks() {
+        return Arrays.copyOf(toolCallbacks, toolCallbacks.length);
+    }
+
+    /**
+     * 基于MethodHandle的工具回调
+     */
+    static final class PrecompiledToolCallback implements ToolCallback {
+
+        private final ToolDefinition toolDefinition;
+        private final ToolMetadata toolMetadata;
+        private final ObjectMapper objectMapper;
+        private final MethodHandle invoker;
+        private final boolean returnsVoid;
+        private final String[] parameterNames;
+        private final ObjectReader[] parameterReaders;
+        private final int toolContextIndex;
+        private final TrafficRecorder trafficRecorder;
+        private final Predicate<Object> failedResult;
+
+        PrecompiledToolCallback(ToolDefinition toolDefinition, ToolMetadata toolMetadata, Method method,
+                                Object target, ObjectMapper objectMapper, TrafficRecorder trafficRecorder,
+                                Predicate<Object> failedResult) {
+            this.toolDefinition = toolDefinition;
+            this.trafficRecorder = trafficRecorder;
+            this.failedResult = failedResult;
+            this.toolMetadata = toolMetadata;
+            this.objectMapper = objectMapper;
+            this.returnsVoid = method.getReturnType() == void.class;
+
+            Parameter[] parameters = method.getParameters();
+            this.parameterNames = new String[parameters.length];
+            this.parameterReaders = new ObjectReader[parameters.length];
+            int contextIndex = -1;
+            for (int i = 0; i < parameters.length; i++) {
+                parameterNames[i] = parameters[i].getName();
+                if (ToolContext.class.isAssignableFrom(parameters[i].getType())) {
+                    contextIndex = i;
+                } else {
+                    parameterReaders[i] = objectMapper.readerFor(
+                            objectMapper.constructType(parameters[i].getParameterizedType()));
+                }
+            }
+            this.toolContextIndex = contextIndex;
+
+            try {
+                this.invoker = MethodHandles.publicLookup()
+                        .unreflect(method)
+                        .bindTo(target)
+                        .asSpreader(Object[].class, parameters.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("无法生成工具调用器: " + toolDefinition.name(), e);
+            }
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return toolDefinition;
+        }
+
+        @Override
+        public ToolMetadata getToolMetadata() {
+            return toolMetadata;
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return call(toolInput, null);
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            McpFlightEvents.ToolInvocation event = new McpFlightEvents.ToolInvocation();
+            long startMillis = System.currentTimeMillis();
+            long start = System.nanoTime();
+            event.begin();
+            String output = null;
+            boolean success = false;
+            try {
+                Object[] arguments = parseArguments(toolInput, toolContext);
+                Object result = (Object) invoker.invokeExact(arguments);
+                output = objectMapper.writeValueAsString(returnsVoid ? "Done" : result);
+                success = !failedResult.test(result);
+                return output;
+            } catch (Throwable e) {
+                throw new ToolExecutionException(toolDefinition, e);
+            } finally {
+                event.end();
+                if (trafficRecorder != null && trafficRecorder.isEnabled()) {
+                    trafficRecorder.recordToolCall(toolDefinition.name(), toolInput, output, success,
+                            startMillis, System.nanoTime() - start);
+                }
+                if (event.shouldCommit()) {
+                    ToolInvocationContext context = ToolInvocationContext.current();
+                    event.tool = toolDefinition.name();
+                    event.tenant = context.getTenant();
+                    event.priority = context.getPriority().name();
+                    event.inputLength = toolInput == null ? 0 : toolInput.length();
+                    event.outputLength = output == null ? 0 : output.length();
+                    event.success = success;
+                    event.commit();
+                }
+            }
+        }
+
+        private Object[] parseArguments(String toolInput, ToolContext toolContext) throws Exception {
+            JsonNode input = StringUtils.hasText(toolInput) ? objectMapper.readTree(toolInput) : NullNode.getInstance();
+            Object[] arguments = new Object[parameterNames.length];
+            for (int i = 0; i < parameterNames.length; i++) {
+                if (i == toolContextIndex) {
+                    arguments[i] = toolContext;
+                    continue;
+                }
+                JsonNode value = input.get(parameterNames[i]);
+                arguments[i] = parameterReaders[i].readValue(value == null ? NullNode.getInstance() : value);
+            }
+            return arguments;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package cn.iocoder.boot.mcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * AgenticRag幂等请求重试配置
+ * 
+ * @author backend
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mcp.agenticrag.retry")
+public class RetryProperties {
+
+    /**
+     * 是否启用重试
+     */
+    private boolean enabled = true;
+
+    /**
+     * 单次请求的最大重试次数
+     */
+    private int maxRetries = 2;
+
+    /**
+     * 首次重试的退避上限，之后按2的幂增长，实际退避在[0, 上限]内随机
+     */
+    private Duration initialBackoff = Duration.ofMillis(100);
+
+    /**
+     * 退避上限
+     */
+    private Duration maxBackoff = Duration.ofSeconds(2);
+
+    /**
+     * 全局重试预算：重试次数占请求数的比例上限
+     */
+    private double budgetRatio = 0.1;
+
+    /**
+     * 低流量时的保底重试额度（每秒）
+     */
+    private double minRetriesPerSecond = 5;
+
+    /**
+     * Retry-After超过该值时不再重试，直接失败
+     */
+    private Duration maxRetryAfter = Duration.ofSeconds(5);
+}
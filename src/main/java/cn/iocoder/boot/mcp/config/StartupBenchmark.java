@@ -0,0 +1,110 @@
+package cn.iocoder.boot.mcp.config;
+
+import cn.iocoder.boot.mcp.service.AgenticRagMcpTools;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.model.function.FunctionCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * 启动耗时基准
+ * 应用就绪后循环调用状态检查工具，报告从JVM启动到首次工具调用成功的耗时；
+ * 开关在运行时检查而非用条件注解，AOT构建时条件注解已被求值，运行时无法再开启
+ *
+ * @author backend
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StartupBenchmark {
+
+    private static final String PROBE_TOOL = "getAgenticRagStatus";
+
+    private final ToolCallbackProvider toolCallbackProvider;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${mcp.startup.benchmark.enabled:false}")
+    private boolean enabled;
+
+    @Value("${mcp.startup.benchmark.max-attempts:50}")
+    private int maxAttempts;
+
+    @Value("${mcp.startup.benchmark.retry-interval:200ms}")
+    private Duration retryInterval;
+
+    @Value("${mcp.startup.benchmark.exit-after-report:false}")
+    private boolean exitAfterReport;
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        if (!enabled) {
+            return;
+        }
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        long readyMillis = System.currentTimeMillis() - jvmStart;
+        log.info("启动基准: JVM启动到应用就绪耗时 {} ms", readyMillis);
+
+        FunctionCallback probe = Arrays.stream(toolCallbackProvider.getToolCallbacks())
+                .filter(callback -> PROBE_TOOL.equals(callback.getName()))
+                .findFirst()
+                .orElse(null);
+        if (probe == null) {
+            log.warn("启动基准: 未找到探测工具 {}", PROBE_TOOL);
+            return;
+        }
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            String result = probe.call("{}");
+            if (isSuccessful(result)) {
+                long firstCallMillis = System.currentTimeMillis() - jvmStart;
+                log.info("启动基准: JVM启动到首次工具调用成功耗时 {} ms（应用就绪 {} ms，尝试 {} 次）",
+                        firstCallMillis, readyMillis, attempt);
+                exitIfRequested(event);
+                return;
+            }
+            try {
+                Thread.sleep(retryInterval.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        log.warn("启动基准: {} 次尝试后工具调用仍未成功", maxAttempts);
+        exitIfRequested(event);
+    }
+
+    /**
+     * 工具输出为JSON字符串，只有带状态前缀且不是不可用状态时才算成功
+     */
+    private boolean isSuccessful(String result) {
+        if (result == null) {
+            return false;
+        }
+        String status;
+        try {
+            status = objectMapper.readValue(result, String.class);
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+        return status.startsWith(AgenticRagMcpTools.STATUS_RESULT_PREFIX)
+                && !status.equals(AgenticRagMcpTools.STATUS_RESULT_PREFIX + AgenticRagMcpTools.STATUS_UNAVAILABLE);
+    }
+
+    private void exitIfRequested(ApplicationReadyEvent event) {
+        if (exitAfterReport) {
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package cn.iocoder.boot.mcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 流量录制配置
+ * 
+ * @author backend
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mcp.recording")
+public class TrafficRecordingProperties {
+
+    /**
+     * 是否录制工具调用与AgenticRag上游流量
+     */
+    private boolean enabled = false;
+
+    /**
+     * 录制文件路径（gzip压缩），实际文件名在扩展名前追加启动时间戳
+     */
+    private String file = System.getProperty("java.io.tmpdir") + "/mcp-traffic.rec.gz";
+
+    /**
+     * 录制的最大未压缩字节数，达到后停止录制
+     */
+    private long maxBytes = 256L * 1024 * 1024;
+
+    /**
+     * 待写入记录的队列容量，队列满时丢弃新记录，不阻塞调用线程
+     */
+    private int queueCapacity = 10_000;
+}
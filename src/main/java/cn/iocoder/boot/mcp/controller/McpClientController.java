@@ -1,20 +1,45 @@
 package cn.iocoder.boot.mcp.controller;
 
+import cn.iocoder.boot.mcp.config.OutboundBufferProperties;
+import cn.iocoder.boot.mcp.dto.BatchQueryResult;
+import cn.iocoder.boot.mcp.dto.McpBulkResult;
 import cn.iocoder.boot.mcp.dto.McpConfigResponse;
 import cn.iocoder.boot.mcp.dto.McpServerConfigRequest;
+import cn.iocoder.boot.mcp.dto.McpServerPage;
+import cn.iocoder.boot.mcp.dto.McpServerStatus;
+import cn.iocoder.boot.mcp.dto.McpServerSummary;
+import cn.iocoder.boot.mcp.service.AgenticRagMcpTools;
+import cn.iocoder.boot.mcp.service.CompactChatMemory;
 import cn.iocoder.boot.mcp.service.McpClientConfigService;
+import cn.iocoder.boot.mcp.service.McpFlightEvents;
+import cn.iocoder.boot.mcp.service.OutboundBufferGuard;
+import cn.iocoder.boot.mcp.service.ToolInvocationContext;
+import cn.iocoder.boot.mcp.service.ToolSelector;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor;
+import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
 
 /**
  * MCP客户端配置控制器
@@ -28,9 +53,20 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class McpClientController {
 
+    /**
+     * 租户标识请求头，用于准入调度的公平排队
+     */
+    private static final String TENANT_HEADER = "X-Tenant-Id";
+
     private final McpClientConfigService mcpClientConfigService;
     private final ChatClient.Builder chatClientBuilder;
     private final ToolCallbackProvider toolCallbackProvider;
+    private final AgenticRagMcpTools agenticRagMcpTools;
+    private final MessageChatMemoryAdvisor chatMemoryAdvisor;
+    private final CompactChatMemory chatMemory;
+    private final ToolSelector toolSelector;
+    private final OutboundBufferGuard outboundBufferGuard;
+    private final OutboundBufferProperties outboundBufferProperties;
 
     /**
      * 健康检查接口
@@ -73,17 +109,95 @@ public class McpClientController {
 
     /**
      * 获取所有配置的MCP服务器
+     * 序列化的是状态表的实时视图，不是一致快照，响应可能包含序列化期间的并发修改
      * 
      * @return 服务器列表及状态
      */
     @GetMapping("/servers")
-    public Mono<ResponseEntity<Map<String, String>>> getServers() {
+    public Mono<ResponseEntity<Map<String, McpServerStatus>>> getServers() {
         return Mono.fromCallable(() -> {
-            Map<String, String> servers = mcpClientConfigService.getConfiguredServers();
+            Map<String, McpServerStatus> servers = mcpClientConfigService.getConfiguredServers();
             return ResponseEntity.ok(servers);
         });
     }
 
+    /**
+     * 游标分页获取MCP服务器
+     * 
+     * @param cursor 上一页返回的游标，首页不传
+     * @param limit 每页条数，默认100，最大1000
+     * @param transportType 传输类型过滤
+     * @param status 状态过滤
+     * @return 分页结果
+     */
+    @GetMapping("/servers/page")
+    public Mono<ResponseEntity<McpServerPage>> getServerPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) McpServerConfigRequest.TransportType transportType,
+            @RequestParam(required = false) McpServerStatus status) {
+        
+        return Mono.fromCallable(() -> {
+            try {
+                return ResponseEntity.ok(mcpClientConfigService.listServers(cursor, limit, transportType, status));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().<McpServerPage>build();
+            }
+        });
+    }
+
+    /**
+     * 以NDJSON流式获取MCP服务器，每行一个服务器
+     * 
+     * @param transportType 传输类型过滤
+     * @param status 状态过滤
+     * @return 服务器流
+     */
+    @GetMapping(value = "/servers/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<McpServerSummary> streamServers(
+            @RequestParam(required = false) McpServerConfigRequest.TransportType transportType,
+            @RequestParam(required = false) McpServerStatus status) {
+        return mcpClientConfigService.streamServers(transportType, status);
+    }
+
+    /**
+     * 批量配置MCP服务器
+     * 
+     * @param configRequests 配置请求列表
+     * @return 批量结果
+     */
+    @PostMapping("/servers/bulk")
+    public Mono<ResponseEntity<McpBulkResult>> configureServers(
+            @RequestBody List<McpServerConfigRequest> configRequests) {
+        log.info("收到MCP服务器批量配置请求，数量: {}", configRequests.size());
+        
+        return Mono.fromCallable(() -> ResponseEntity.ok(mcpClientConfigService.configureMcpServers(configRequests)))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(bulkRejected(configRequests.size(), e)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 批量删除MCP服务器配置
+     * 
+     * @param serverNames 服务器名称列表
+     * @return 批量结果
+     */
+    @PostMapping("/servers/bulk/delete")
+    public Mono<ResponseEntity<McpBulkResult>> removeServers(@RequestBody List<String> serverNames) {
+        log.info("收到MCP服务器批量删除请求，数量: {}", serverNames.size());
+        
+        return Mono.fromCallable(() -> ResponseEntity.ok(mcpClientConfigService.removeServerConfigs(serverNames)))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(bulkRejected(serverNames.size(), e)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static ResponseEntity<McpBulkResult> bulkRejected(int total, Throwable e) {
+        log.warn("拒绝MCP服务器批量请求: {}", e.getMessage());
+        McpBulkResult result = new McpBulkResult().setTotal(total);
+        result.getFailures().add(McpConfigResponse.failure(null, "批量请求被拒绝", e.getMessage()));
+        return ResponseEntity.badRequest().body(result);
+    }
+
     /**
      * 获取特定MCP服务器配置
      * 
@@ -155,6 +269,51 @@ public class McpClientController {
         });
     }
 
+    /**
+     * 列出STDIO服务器提供的工具，首次调用时启动进程
+     * 
+     * @param serverName 服务器名称
+     * @return tools/list结果
+     */
+    @GetMapping("/servers/{serverName}/tools")
+    public Mono<ResponseEntity<JsonNode>> listServerTools(@PathVariable String serverName) {
+        return mcpClientConfigService.listTools(serverName)
+                .map(ResponseEntity::ok)
+                .onErrorResume(e -> Mono.just(stdioError(serverName, e)));
+    }
+
+    /**
+     * 调用STDIO服务器上的工具
+     * 
+     * @param serverName 服务器名称
+     * @param toolName 工具名称
+     * @param arguments 工具参数
+     * @return tools/call结果
+     */
+    @PostMapping("/servers/{serverName}/tools/{toolName}")
+    public Mono<ResponseEntity<JsonNode>> callServerTool(
+            @PathVariable String serverName,
+            @PathVariable String toolName,
+            @RequestBody(required = false) JsonNode arguments) {
+        log.info("收到STDIO MCP工具调用请求: {}/{}", serverName, toolName);
+        return mcpClientConfigService.callTool(serverName, toolName, arguments)
+                .map(ResponseEntity::ok)
+                .onErrorResume(e -> Mono.just(stdioError(serverName, e)));
+    }
+
+    private static ResponseEntity<JsonNode> stdioError(String serverName, Throwable e) {
+        HttpStatus status = e instanceof NoSuchElementException ? HttpStatus.NOT_FOUND
+                : e instanceof IllegalArgumentException ? HttpStatus.BAD_REQUEST
+                : HttpStatus.SERVICE_UNAVAILABLE;
+        if (status == HttpStatus.SERVICE_UNAVAILABLE) {
+            log.warn("STDIO MCP服务器调用失败: {}，原因: {}", serverName, e.getMessage());
+        }
+        ObjectNode body = JsonNodeFactory.instance.objectNode()
+                .put("serverName", serverName)
+                .put("error", e.getMessage());
+        return ResponseEntity.status(status).body(body);
+    }
+
     /**
      * 测试MCP工具调用
      * 
@@ -162,18 +321,23 @@ public class McpClientController {
      * @return 查询结果
      */
     @GetMapping("/test/query")
-    public Mono<ResponseEntity<Map<String, Object>>> testQuery(@RequestParam String query) {
+    public Mono<ResponseEntity<Map<String, Object>>> testQuery(
+            @RequestParam String query,
+            @RequestHeader HttpHeaders headers) {
         log.info("收到测试查询请求: {}", query);
+        ToolInvocationContext context = invocationContext(ToolInvocationContext.Priority.INTERACTIVE, headers);
         
         return Mono.fromCallable(() -> {
             try {
-                // 创建ChatClient，工具已在配置中注册，无需重复添加
+                // 创建ChatClient，按提示选择相关工具
                 ChatClient chatClient = chatClientBuilder.build();
+                String userPrompt = "请使用AgenticRag工具查询: " + query;
                 
-                String response = chatClient.prompt()
-                        .user("请使用AgenticRag工具查询: " + query)
+                String response = callChat("test-query", context, userPrompt, () -> chatClient.prompt()
+                        .user(userPrompt)
+                        .tools(toolSelector.select(userPrompt))
                         .call()
-                        .content();
+                        .content());
                 
                 Map<String, Object> result = Map.of(
                     "query", query,
@@ -196,7 +360,9 @@ public class McpClientController {
                 
                 return ResponseEntity.status(500).body(result);
             }
-        });
+        })
+        .subscribeOn(Schedulers.boundedElastic())
+        .doOnCancel(context::cancel);
     }
 
     /**
@@ -206,22 +372,28 @@ public class McpClientController {
      * @return 流式响应
      */
     @GetMapping(value = "/chat/stream", produces = MediaType.TEXT_PLAIN_VALUE)
-    public Flux<String> streamChat(@RequestParam String prompt) {
+    public Flux<String> streamChat(
+            @RequestParam String prompt,
+            @RequestHeader HttpHeaders headers) {
         log.info("收到流式对话请求: {}", prompt);
+        ToolInvocationContext context = invocationContext(ToolInvocationContext.Priority.INTERACTIVE, headers);
         
         return Flux.<String>create(sink -> {
+            // 客户端断开时取消调用上下文，中止进行中的上游请求
+            sink.onCancel(context::cancel);
             try {
-                // 创建ChatClient，工具已在配置中注册，无需重复添加
+                // 创建ChatClient，按提示选择相关工具
                 ChatClient chatClient = chatClientBuilder.build();
                 
                 // 发送初始响应
                 sink.next("data: 开始处理您的请求...\n\n");
                 
                 // 调用AI模型
-                String response = chatClient.prompt()
+                String response = callChat("chat-stream", context, prompt, () -> chatClient.prompt()
                         .user(prompt)
+                        .tools(toolSelector.select(prompt))
                         .call()
-                        .content();
+                        .content());
                 
                 // 模拟流式输出
                 String[] words = response.split(" ");
@@ -247,6 +419,146 @@ public class McpClientController {
                 sink.complete();
             }
         })
-        .delayElements(Duration.ofMillis(50));
+        .subscribeOn(Schedulers.boundedElastic())
+        .delayElements(Duration.ofMillis(50))
+        .transform(flux -> outboundBufferGuard.guard(flux, "chat", outboundBufferProperties.getChatStrategy(),
+                chunk -> chunk.getBytes(StandardCharsets.UTF_8).length, null, chunk -> { }));
+    }
+
+    /**
+     * 流式批量查询
+     * 每个查询完成后立即以SSE事件推送结果，不在服务端聚合全部结果
+     * 
+     * @param queries 查询列表
+     * @return 单条查询结果事件流
+     */
+    @PostMapping(value = "/batch/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<BatchQueryResult>> streamBatchQuery(
+            @RequestBody List<String> queries,
+            @RequestHeader HttpHeaders headers) {
+        log.info("收到流式批量查询请求，查询数量: {}", queries.size());
+        ToolInvocationContext context = invocationContext(ToolInvocationContext.Priority.BATCH, headers);
+        
+        return ToolInvocationContext.callWith(context, () -> agenticRagMcpTools.streamBatchQuery(queries))
+                .map(result -> ServerSentEvent.<BatchQueryResult>builder()
+                        .id(String.valueOf(result.getIndex()))
+                        .event("result")
+                        .data(result)
+                        .build())
+                .doOnCancel(context::cancel);
+    }
+
+    /**
+     * 多轮会话对话
+     * 历史消息由服务端会话记忆维护，客户端只需发送本轮内容
+     * 
+     * @param sessionId 会话ID
+     * @param prompt 用户提示
+     * @return 对话结果
+     */
+    @PostMapping("/chat/sessions/{sessionId}")
+    public Mono<ResponseEntity<Map<String, Object>>> sessionChat(
+            @PathVariable String sessionId,
+            @RequestParam String prompt,
+            @RequestHeader HttpHeaders headers) {
+        log.info("收到会话对话请求: {}", sessionId);
+        ToolInvocationContext context = invocationContext(ToolInvocationContext.Priority.INTERACTIVE, headers);
+        
+        return Mono.fromCallable(() -> {
+            try {
+                ChatClient chatClient = chatClientBuilder.build();
+                
+                String response = callChat("chat-session", context, prompt, () -> chatClient.prompt()
+                        .advisors(chatMemoryAdvisor)
+                        .advisors(a -> a.param(AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY, sessionId))
+                        .user(prompt)
+                        .tools(toolSelector.select(prompt))
+                        .call()
+                        .content());
+                
+                Map<String, Object> result = Map.of(
+                    "sessionId", sessionId,
+                    "success", true,
+                    "response", response,
+                    "timestamp", System.currentTimeMillis()
+                );
+                
+                return ResponseEntity.ok(result);
+                
+            } catch (Exception e) {
+                log.error("会话对话失败: {}", e.getMessage(), e);
+                Map<String, Object> result = Map.of(
+                    "sessionId", sessionId,
+                    "success", false,
+                    "error", e.getMessage(),
+                    "timestamp", System.currentTimeMillis()
+                );
+                
+                return ResponseEntity.status(500).body(result);
+            }
+        })
+        .subscribeOn(Schedulers.boundedElastic())
+        .doOnCancel(context::cancel);
+    }
+
+    /**
+     * 清除会话记忆
+     * 
+     * @param sessionId 会话ID
+     * @return 清除结果
+     */
+    @DeleteMapping("/chat/sessions/{sessionId}")
+    public Mono<ResponseEntity<Map<String, Object>>> clearSession(@PathVariable String sessionId) {
+        return Mono.fromCallable(() -> {
+            chatMemory.clear(sessionId);
+            return ResponseEntity.ok(Map.<String, Object>of(
+                "sessionId", sessionId,
+                "cleared", true
+            ));
+        });
+    }
+
+    /**
+     * 根据请求头构建调用上下文
+     * 支持租户标识、截止时间（epoch毫秒）与剩余预算（毫秒），同时给出时取较早者
+     */
+    private ToolInvocationContext invocationContext(ToolInvocationContext.Priority priority, HttpHeaders headers) {
+        ToolInvocationContext context = ToolInvocationContext.of(priority, headers.getFirst(TENANT_HEADER));
+        try {
+            String deadline = headers.getFirst(AgenticRagMcpTools.DEADLINE_HEADER);
+            if (deadline != null) {
+                context = context.withDeadline(Long.parseLong(deadline.trim()));
+            }
+            String timeoutMillis = headers.getFirst(AgenticRagMcpTools.TIMEOUT_HEADER);
+            if (timeoutMillis != null) {
+                context = context.withBudget(Duration.ofMillis(Long.parseLong(timeoutMillis.trim())));
+            }
+        } catch (NumberFormatException e) {
+            log.warn("忽略无效的截止时间请求头: {}", e.getMessage());
+        }
+        return context;
+    }
+
+    /**
+     * 在调用上下文中执行对话，并记录ChatClient调用的JFR事件
+     */
+    private String callChat(String endpoint, ToolInvocationContext context, String prompt, Supplier<String> call) {
+        McpFlightEvents.ChatCall event = new McpFlightEvents.ChatCall();
+        event.begin();
+        String response = null;
+        try {
+            response = ToolInvocationContext.callWith(context, call);
+            return response;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.endpoint = endpoint;
+                event.tenant = context.getTenant();
+                event.promptLength = prompt.length();
+                event.responseLength = response == null ? 0 : response.length();
+                event.success = response != null;
+                event.commit();
+            }
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+package cn.iocoder.boot.mcp.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+/**
+ * 流式批量查询的单条结果DTO
+ * 
+ * @author backend
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+public class BatchQueryResult {
+
+    /**
+     * 查询在批次中的序号（从1开始）
+     */
+    private int index;
+
+    /**
+     * 批次查询总数
+     */
+    private int total;
+
+    /**
+     * 查询内容
+     */
+    private String query;
+
+    /**
+     * 查询结果
+     */
+    private String result;
+
+    /**
+     * 是否查询成功
+     */
+    private boolean success;
+
+    /**
+     * 查询耗时（毫秒）
+     */
+    private long elapsedMillis;
+}
@@ -0,0 +1,33 @@
+package cn.iocoder.boot.mcp.dto;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MCP服务器批量操作结果DTO
+ * 只返回失败项明细，避免大批量操作时响应体随请求规模增长
+ * 
+ * @author backend
+ */
+@Data
+@Accessors(chain = true)
+public class McpBulkResult {
+
+    /**
+     * 请求条数
+     */
+    private int total;
+
+    /**
+     * 成功条数
+     */
+    private int succeeded;
+
+    /**
+     * 失败项
+     */
+    private List<McpConfigResponse> failures = new ArrayList<>();
+}
@@ -0,0 +1,26 @@
+package cn.iocoder.boot.mcp.dto;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * MCP服务器分页列表DTO
+ * 
+ * @author backend
+ */
+@Data
+@Accessors(chain = true)
+public class McpServerPage {
+
+    /**
+     * 本页服务器，按名称排序
+     */
+    private List<McpServerSummary> items;
+
+    /**
+     * 下一页游标，没有更多数据时为空
+     */
+    private String nextCursor;
+}
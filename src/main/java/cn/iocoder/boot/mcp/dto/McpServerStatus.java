@@ -0,0 +1,24 @@
+package cn.iocoder.boot.mcp.dto;
+
+/**
+ * MCP服务器状态
+ * 
+ * @author backend
+ */
+public enum McpServerStatus {
+
+    /**
+     * 已保存配置
+     */
+    CONFIGURED,
+
+    /**
+     * 已就绪，可处理请求
+     */
+    READY,
+
+    /**
+     * 连接或启动失败
+     */
+    FAILED
+}
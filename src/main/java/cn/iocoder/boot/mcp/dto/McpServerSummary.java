@@ -0,0 +1,33 @@
+package cn.iocoder.boot.mcp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * MCP服务器列表项DTO
+ * 
+ * @author backend
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class McpServerSummary {
+
+    /**
+     * 服务器名称
+     */
+    private String serverName;
+
+    /**
+     * 传输类型
+     */
+    private McpServerConfigRequest.TransportType transportType;
+
+    /**
+     * 服务器状态
+     */
+    private McpServerStatus status;
+}
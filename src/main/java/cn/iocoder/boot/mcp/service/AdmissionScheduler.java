@@ -0,0 +1,264 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.config.AdmissionProperties;
+import cn.iocoder.boot.mcp.service.ToolInvocationContext.Priority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * AgenticRag调用准入调度器
+ * 按优先级（交互式优先于批量）严格调度，同一优先级内按租户权重轮转，队列满时直接拒绝
+ *
+ * @author backend
+ */
+@Slf4j
+@Service
+public class AdmissionScheduler {
+
+    private final AdmissionProperties properties;
+
+    private final Map<Priority, PriorityLane> queues = new EnumMap<>(Priority.class);
+
+    private final Map<Priority, Timer> waitTimers = new EnumMap<>(Priority.class);
+
+    private final Map<Priority, Counter> rejectedCounters = new EnumMap<>(Priority.class);
+
+    private int inFlight;
+
+    public AdmissionScheduler(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (Priority priority : Priority.values()) {
+            PriorityLane queue = new PriorityLane();
+            queues.put(priority, queue);
+            String tag = priority.name().toLowerCase();
+            waitTimers.put(priority, Timer.builder("mcp.admission.queue.wait")
+                    .description("AgenticRag调用排队等待时间")
+                    .tag("priority", tag)
+                    .register(meterRegistry));
+            rejectedCounters.put(priority, Counter.builder("mcp.admission.rejected")
+                    .description("因队列已满被拒绝的AgenticRag调用数")
+                    .tag("priority", tag)
+                    .register(meterRegistry));
+            Gauge.builder("mcp.admission.queue.size", this, s -> s.queuedCount(priority))
+                    .description("AgenticRag调用排队数")
+                    .tag("priority", tag)
+                    .register(meterRegistry);
+        }
+        Gauge.builder("mcp.admission.in.flight", this, AdmissionScheduler::inFlightCount)
+                .description("正在执行的AgenticRag调用数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 在当前调用上下文的优先级与租户下准入执行任务
+     */
+    public <T> Mono<T> admit(Mono<T> task) {
+        ToolInvocationContext context = ToolInvocationContext.current();
+        return admit(context.getPriority(), context.getTenant(), task);
+    }
+
+    /**
+     * 准入执行任务，获得执行许可后才订阅任务，任务结束后归还许可
+     *
+     * @param priority 优先级
+     * @param tenant 租户（MCP会话或调用方标识）
+     * @param task 待执行任务
+     * @return 任务结果，队列已满时以{@link RejectedExecutionException}结束
+     */
+    public <T> Mono<T> admit(Priority priority, String tenant, Mono<T> task) {
+        return Mono.<Ticket>create(sink -> enqueue(new Ticket(priority, tenant, sink)))
+                .flatMap(ticket -> task.doFinally(signal -> release(ticket)));
+    }
+
+    private void enqueue(Ticket ticket) {
+        boolean granted;
+        synchronized (this) {
+            if (inFlight < properties.getMaxConcurrent() && totalQueued() == 0) {
+                inFlight++;
+                ticket.granted = true;
+                granted = true;
+            } else if (queues.get(ticket.priority).size >= properties.getQueueCapacity()) {
+                granted = false;
+            } else {
+                queues.get(ticket.priority).offer(ticket, properties.weightOf(ticket.tenant));
+                ticket.sink.onCancel(() -> cancel(ticket));
+                return;
+            }
+        }
+
+        if (granted) {
+            grant(ticket);
+        } else {
+            rejectedCounters.get(ticket.priority).increment();
+            log.warn("AgenticRag调用队列已满，拒绝请求: priority={}, tenant={}", ticket.priority, ticket.tenant);
+            ticket.sink.error(new RejectedExecutionException("AgenticRag调用排队已满，请稍后重试"));
+        }
+    }
+
+    private void cancel(Ticket ticket) {
+        boolean releaseGranted;
+        synchronized (this) {
+            releaseGranted = ticket.granted;
+            if (!releaseGranted) {
+                queues.get(ticket.priority).remove(ticket);
+            }
+        }
+        if (releaseGranted) {
+            release(ticket);
+        }
+    }
+
+    private void release(Ticket ticket) {
+        if (!ticket.released.compareAndSet(false, true)) {
+            return;
+        }
+        Ticket next;
+        synchronized (this) {
+            next = pollNext();
+            if (next != null) {
+                next.granted = true;
+            } else {
+                inFlight--;
+            }
+        }
+        if (next != null) {
+            grant(next);
+        }
+    }
+
+    private void grant(Ticket ticket) {
+        waitTimers.get(ticket.priority).record(Duration.ofNanos(System.nanoTime() - ticket.enqueuedAt));
+        ticket.sink.success(ticket);
+    }
+
+    /**
+     * 按优先级从高到低取出下一个待执行调用
+     */
+    private Ticket pollNext() {
+        for (Priority priority : Priority.values()) {
+            Ticket ticket = queues.get(priority).poll();
+            if (ticket != null) {
+                return ticket;
+            }
+        }
+        return null;
+    }
+
+    private int totalQueued() {
+        int total = 0;
+        for (PriorityLane queue : queues.values()) {
+            total += queue.size;
+        }
+        return total;
+    }
+
+    private synchronized int queuedCount(Priority priority) {
+        return queues.get(priority).size;
+    }
+
+    private synchronized int inFlightCount() {
+        return inFlight;
+    }
+
+    /**
+     * 单个优先级的队列：各租户独立排队，按权重轮转出队
+     */
+    private static final class PriorityLane {
+
+        private final Map<String, TenantQueue> tenants = new HashMap<>();
+
+        private final ArrayDeque<TenantQueue> rotation = new ArrayDeque<>();
+
+        private int size;
+
+        void offer(Ticket ticket, int weight) {
+            TenantQueue tenantQueue = tenants.computeIfAbsent(ticket.tenant, t -> new TenantQueue(weight));
+            if (tenantQueue.tickets.isEmpty()) {
+                tenantQueue.credits = tenantQueue.weight;
+                rotation.addLast(tenantQueue);
+            }
+            tenantQueue.tickets.addLast(ticket);
+            size++;
+        }
+
+        Ticket poll() {
+            TenantQueue tenantQueue = rotation.peekFirst();
+            if (tenantQueue == null) {
+                return null;
+            }
+            Ticket ticket = tenantQueue.tickets.pollFirst();
+            size--;
+            rotation.pollFirst();
+            if (tenantQueue.tickets.isEmpty()) {
+                tenants.remove(ticket.tenant);
+            } else if (--tenantQueue.credits > 0) {
+                rotation.addFirst(tenantQueue);
+            } else {
+                tenantQueue.credits = tenantQueue.weight;
+                rotation.addLast(tenantQueue);
+            }
+            return ticket;
+        }
+
+        void remove(Ticket ticket) {
+            TenantQueue tenantQueue = tenants.get(ticket.tenant);
+            if (tenantQueue == null || !tenantQueue.tickets.remove(ticket)) {
+                return;
+            }
+            size--;
+            if (tenantQueue.tickets.isEmpty()) {
+                tenants.remove(ticket.tenant);
+                rotation.remove(tenantQueue);
+            }
+        }
+    }
+
+    private static final class TenantQueue {
+
+        private final ArrayDeque<Ticket> tickets = new ArrayDeque<>();
+
+        private final int weight;
+
+        private int credits;
+
+        TenantQueue(int weight) {
+            this.weight = weight;
+            this.credits = weight;
+        }
+    }
+
+    private static final class Ticket {
+
+        private final Priority priority;
+
+        private final String tenant;
+
+        private final MonoSink<Ticket> sink;
+
+        private final long enqueuedAt = System.nanoTime();
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private boolean granted;
+
+        Ticket(Priority priority, String tenant, MonoSink<Ticket> sink) {
+            this.priority = priority;
+            this.tenant = tenant == null ? ToolInvocationContext.DEFAULT_TENANT : tenant;
+            this.sink = sink;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package cn.iocoder.boot.mcp.service;
 
+import cn.iocoder.boot.mcp.dto.BatchQueryResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.tool.annotation.Tool;
@@ -7,11 +8,16 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * AgenticRag MCP工具服务
@@ -23,8 +29,67 @@ import java.util.Map;
 @Slf4j
 @RequiredArgsConstructor
 public class AgenticRagMcpTools {
+
+    /**
+     * AgenticRag调用失败时的返回内容
+     */
+    public static final String QUERY_FAILED = "AgenticRag服务调用失败";
+
+    /**
+     * 调用排队已满被拒绝时的返回内容
+     */
+    public static final String QUERY_REJECTED = "AgenticRag服务繁忙，请稍后重试";
+
+    /**
+     * 调用已超过截止时间时的返回内容
+     */
+    public static final String QUERY_DEADLINE_EXCEEDED = "AgenticRag调用已超过截止时间";
+
+    /**
+     * 调用被取消时的返回内容
+     */
+    public static final String QUERY_CANCELLED = "AgenticRag调用已取消";
+
+    /**
+     * 健康检查失败时的状态内容
+     */
+    public static final String STATUS_UNAVAILABLE = "服务不可用";
+
+    /**
+     * 状态检查工具返回内容的前缀，后接健康检查响应或{@link #STATUS_UNAVAILABLE}
+     */
+    public static final String STATUS_RESULT_PREFIX = "AgenticRag服务状态: ";
+
+    /**
+     * 传递给AgenticRag的截止时间请求头（epoch毫秒）
+     */
+    public static final String DEADLINE_HEADER = "X-Request-Deadline";
+
+    /**
+     * 传递给AgenticRag的剩余预算请求头（毫秒）
+     */
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    /**
+     * 表示调用失败的全部返回内容
+     */
+    public static final Set<String> FAILED_RESULTS =
+            Set.of(QUERY_FAILED, QUERY_REJECTED, QUERY_DEADLINE_EXCEEDED, QUERY_CANCELLED);
+
+    /**
+     * 工具以固定文案表示失败而非抛出异常，供工具回调判断调用是否成功
+     */
+    public static boolean isFailedResult(Object result) {
+        return result instanceof String text && FAILED_RESULTS.contains(text);
+    }
     
     private final WebClient webClient;
+
+    private final AdmissionScheduler admissionScheduler;
+
+    private final PayloadLogger payloadLogger;
+
+    private final RetryBudget retryBudget;
     
     @Value("${mcp.agenticrag.base-url:http://localhost:8080}")
     private String agenticRagBaseUrl;
@@ -32,6 +97,9 @@ public class AgenticRagMcpTools {
     @Value("${mcp.agenticrag.timeout:30s}")
     private Duration timeout;
 
+    @Value("${mcp.agenticrag.batch-concurrency:4}")
+    private int batchConcurrency = 4;
+
     /**
      * 智能查询工具 - 调用AgenticRag服务
      */
@@ -40,20 +108,9 @@ public class AgenticRagMcpTools {
         log.info("MCP工具调用: queryWithAgenticRag，查询内容: {}", query);
         
         try {
-            String uri = UriComponentsBuilder.fromHttpUrl(agenticRagBaseUrl + "/query")
-                    .queryParam("q", query)
-                    .toUriString();
-            
-            String response = webClient.get()
-                    .uri(uri)
-                    .header("Content-Type", "application/json")
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(timeout)
-                    .onErrorReturn("AgenticRag服务调用失败")
-                    .block();
+            String response = queryReactive(query).block();
             
-            log.info("AgenticRag服务响应: {}", response);
+            payloadLogger.log("queryWithAgenticRag", "response", response);
             return response;
             
         } catch (Exception e) {
@@ -62,6 +119,126 @@ public class AgenticRagMcpTools {
         }
     }
 
+    /**
+     * 响应式查询AgenticRag服务，失败时返回{@link #QUERY_FAILED}
+     * 每次尝试的超时取配置超时与调用上下文剩余预算的较小者，截止时间通过请求头传给AgenticRag，
+     * 调用上下文被取消时立即中止排队或进行中的上游请求
+     */
+    public Mono<String> queryReactive(String query) {
+        ToolInvocationContext context = ToolInvocationContext.current();
+        String uri = UriComponentsBuilder.fromHttpUrl(agenticRagBaseUrl + "/query")
+                .queryParam("q", query)
+                .toUriString();
+        
+        // 每次尝试单独获取执行许可，退避期间不占用许可；获得许可后再计算预算，排队耗时计入截止时间
+        Mono<String> attempt = admissionScheduler.admit(Mono.defer(() -> {
+            Duration budget = context.budget(timeout);
+            if (budget.isZero()) {
+                return Mono.just(QUERY_DEADLINE_EXCEEDED);
+            }
+            Mono<String> call = webClient.get()
+                    .uri(uri)
+                    .header("Content-Type", "application/json")
+                    .headers(headers -> {
+                        context.getDeadline().ifPresent(deadline -> headers.set(DEADLINE_HEADER, String.valueOf(deadline)));
+                        headers.set(TIMEOUT_HEADER, String.valueOf(budget.toMillis()));
+                    })
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .timeout(budget);
+            if (budget.compareTo(timeout) < 0) {
+                // 预算由截止时间决定，超时即超过截止时间，而非上游调用失败
+                call = call.onErrorReturn(TimeoutException.class, QUERY_DEADLINE_EXCEEDED);
+            }
+            return call;
+        }));
+        
+        Mono<String> admitted = retryBudget.withRetry(attempt, "/query", () -> context.budget(timeout))
+                .onErrorReturn(RejectedExecutionException.class, QUERY_REJECTED)
+                .onErrorReturn(QUERY_FAILED);
+        if (context.getDeadline().isPresent()) {
+            Duration budget = context.budget(timeout);
+            if (budget.isZero()) {
+                return Mono.just(QUERY_DEADLINE_EXCEEDED);
+            }
+            // 在排队阶段就耗尽预算的调用不再等待执行许可
+            admitted = admitted.timeout(budget)
+                    .onErrorReturn(TimeoutException.class, QUERY_DEADLINE_EXCEEDED);
+        }
+        
+        Mono<String> result = admitted
+                .takeUntilOther(context.cancelled())
+                .switchIfEmpty(Mono.defer(() -> context.isCancelled() ? Mono.just(QUERY_CANCELLED) : Mono.empty()));
+        return traced(result, "/query", context);
+    }
+
+    /**
+     * 为出站请求记录JFR事件，订阅时开始计时
+     */
+    private Mono<String> traced(Mono<String> request, String path, ToolInvocationContext context) {
+        return Mono.defer(() -> {
+            McpFlightEvents.AgenticRagRequest event = new McpFlightEvents.AgenticRagRequest();
+            long budget = context.budget(timeout).toMillis();
+            event.begin();
+            AtomicReference<String> response = new AtomicReference<>();
+            return request
+                    .doOnNext(response::set)
+                    .doFinally(signal -> {
+                        event.end();
+                        if (event.shouldCommit()) {
+                            String body = response.get();
+                            event.path = path;
+                            event.tenant = context.getTenant();
+                            event.priority = context.getPriority().name();
+                            event.budget = budget;
+                            event.outcome = outcomeOf(body);
+                            event.responseLength = body == null ? 0 : body.length();
+                            event.commit();
+                        }
+                    });
+        });
+    }
+
+    private static String outcomeOf(String result) {
+        if (result == null) {
+            return "cancelled";
+        }
+        return switch (result) {
+            case QUERY_FAILED, STATUS_UNAVAILABLE -> "failed";
+            case QUERY_REJECTED -> "rejected";
+            case QUERY_DEADLINE_EXCEEDED -> "deadline";
+            case QUERY_CANCELLED -> "cancelled";
+            default -> "success";
+        };
+    }
+
+    /**
+     * 流式批量查询，每个查询完成后立即发出其结果（按完成顺序，而非提交顺序）
+     * 
+     * @param queries 查询列表
+     * @return 单条查询结果流
+     */
+    public Flux<BatchQueryResult> streamBatchQuery(List<String> queries) {
+        int total = queries.size();
+        log.info("流式批量查询开始，查询数量: {}，并发度: {}", total, batchConcurrency);
+        ToolInvocationContext batchContext = ToolInvocationContext.current().withPriority(ToolInvocationContext.Priority.BATCH);
+        
+        return Flux.range(0, total)
+                .flatMap(i -> {
+                    String query = queries.get(i);
+                    long start = System.nanoTime();
+                    return ToolInvocationContext.callWith(batchContext, () -> queryReactive(query))
+                            .defaultIfEmpty("")
+                            .map(result -> new BatchQueryResult()
+                                    .setIndex(i + 1)
+                                    .setTotal(total)
+                                    .setQuery(query)
+                                    .setResult(result)
+                                    .setSuccess(!FAILED_RESULTS.contains(result))
+                                    .setElapsedMillis(Duration.ofNanos(System.nanoTime() - start).toMillis()));
+                }, Math.max(1, batchConcurrency));
+    }
+
     /**
      * 批量查询工具
      */
@@ -69,11 +246,16 @@ public class AgenticRagMcpTools {
     public String batchQueryWithAgenticRag(List<String> queries) {
         log.info("MCP工具调用: batchQueryWithAgenticRag，查询数量: {}", queries.size());
         
+        ToolInvocationContext batchContext = ToolInvocationContext.current().withPriority(ToolInvocationContext.Priority.BATCH);
         StringBuilder results = new StringBuilder();
         
         for (int i = 0; i < queries.size(); i++) {
+            if (batchContext.isCancelled()) {
+                results.append(String.format("剩余%d条查询已取消\n", queries.size() - i));
+                break;
+            }
             String query = queries.get(i);
-            String result = queryWithAgenticRag(query);
+            String result = ToolInvocationContext.callWith(batchContext, () -> queryWithAgenticRag(query));
             results.append(String.format("查询%d: %s\n结果: %s\n\n", i + 1, query, result));
         }
         
@@ -88,15 +270,17 @@ public class AgenticRagMcpTools {
         log.info("MCP工具调用: getAgenticRagStatus");
         
         try {
-            String status = webClient.get()
+            ToolInvocationContext context = ToolInvocationContext.current();
+            Mono<String> attempt = Mono.defer(() -> webClient.get()
                     .uri(agenticRagBaseUrl + "/health")
                     .retrieve()
                     .bodyToMono(String.class)
-                    .timeout(timeout)
-                    .onErrorReturn("服务不可用")
-                    .block();
+                    .timeout(context.budget(timeout)));
+            Mono<String> request = retryBudget.withRetry(attempt, "/health", () -> context.budget(timeout))
+                    .onErrorReturn(STATUS_UNAVAILABLE);
+            String status = traced(request, "/health", context).block();
             
-            return String.format("AgenticRag服务状态: %s", status);
+            return STATUS_RESULT_PREFIX + status;
             
         } catch (Exception e) {
             log.error("检查AgenticRag服务状态出错: {}", e.getMessage());
@@ -0,0 +1,241 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.config.ChatMemoryProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑编码的多轮对话会话记忆
+ * 每个会话编码为单个字节块（类型 + 变长长度 + UTF-8文本），按token窗口将较早消息压缩为摘要，
+ * 按会话数与总字节数做LRU淘汰，可选存放在堆外内存
+ *
+ * @author backend
+ */
+@Slf4j
+@Component
+public class CompactChatMemory implements ChatMemory {
+
+    private static final String SUMMARY_PREFIX = "历史对话摘要:\n";
+
+    private static final MessageType[] TYPES = {MessageType.USER, MessageType.ASSISTANT, MessageType.SYSTEM};
+
+    private final ChatMemoryProperties properties;
+
+    private final LinkedHashMap<String, ByteBuffer> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    public CompactChatMemory(ChatMemoryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        Gauge.builder("mcp.chat.memory.sessions", this, CompactChatMemory::sessionCount)
+                .description("会话记忆中的会话数")
+                .register(meterRegistry);
+        Gauge.builder("mcp.chat.memory.bytes", this, CompactChatMemory::totalBytes)
+                .description("会话记忆编码后的总字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("mcp.chat.memory.bytes.per.thousand.sessions", this, CompactChatMemory::bytesPerThousandSessions)
+                .description("每千个会话占用的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public synchronized void add(String conversationId, List<Message> messages) {
+        List<Entry> entries = decode(sessions.get(conversationId));
+        for (Message message : messages) {
+            int type = typeOf(message.getMessageType());
+            String text = message.getText();
+            if (type >= 0 && text != null && !text.isEmpty()) {
+                entries.add(new Entry(type, text));
+            }
+        }
+        trimToTokenWindow(entries);
+        store(conversationId, encode(entries));
+        evict();
+    }
+
+    @Override
+    public synchronized List<Message> get(String conversationId, int lastN) {
+        List<Entry> entries = decode(sessions.get(conversationId));
+        int from = Math.max(0, entries.size() - Math.max(0, lastN));
+        List<Message> messages = new ArrayList<>(entries.size() - from);
+        for (Entry entry : entries.subList(from, entries.size())) {
+            messages.add(toMessage(entry));
+        }
+        return messages;
+    }
+
+    @Override
+    public synchronized void clear(String conversationId) {
+        ByteBuffer removed = sessions.remove(conversationId);
+        if (removed != null) {
+            totalBytes -= removed.capacity();
+        }
+    }
+
+    public synchronized int sessionCount() {
+        return sessions.size();
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized double bytesPerThousandSessions() {
+        return sessions.isEmpty() ? 0 : totalBytes * 1000.0 / sessions.size();
+    }
+
+    /**
+     * 超出token窗口时，将较早的一半消息压缩为一条摘要
+     */
+    private void trimToTokenWindow(List<Entry> entries) {
+        while (entries.size() > 2 && estimateTokens(entries) > properties.getMaxTokensPerSession()) {
+            int cut = entries.size() / 2;
+            StringBuilder summary = new StringBuilder(SUMMARY_PREFIX);
+            for (Entry entry : entries.subList(0, cut)) {
+                if (entry.type == typeOf(MessageType.SYSTEM) && entry.text.startsWith(SUMMARY_PREFIX)) {
+                    summary.append(entry.text, SUMMARY_PREFIX.length(), entry.text.length());
+                    continue;
+                }
+                summary.append(entry.type == typeOf(MessageType.USER) ? "用户: " : "助手: ")
+                        .append(abbreviate(entry.text, properties.getSummaryCharsPerMessage()))
+                        .append('\n');
+            }
+            // 摘要本身也受窗口约束，只保留最近的部分
+            int summaryLimit = Math.max(SUMMARY_PREFIX.length(), properties.getMaxTokensPerSession());
+            String summaryText = summary.length() > summaryLimit
+                    ? SUMMARY_PREFIX + summary.substring(summary.length() - summaryLimit + SUMMARY_PREFIX.length())
+                    : summary.toString();
+
+            entries.subList(0, cut).clear();
+            entries.add(0, new Entry(typeOf(MessageType.SYSTEM), summaryText));
+            if (cut <= 1) {
+                break;
+            }
+        }
+    }
+
+    private void store(String conversationId, byte[] encoded) {
+        ByteBuffer buffer = properties.isOffHeap()
+                ? ByteBuffer.allocateDirect(encoded.length).put(encoded).flip()
+                : ByteBuffer.wrap(encoded);
+        ByteBuffer previous = sessions.put(conversationId, buffer);
+        if (previous != null) {
+            totalBytes -= previous.capacity();
+        }
+        totalBytes += buffer.capacity();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, ByteBuffer>> iterator = sessions.entrySet().iterator();
+        while (iterator.hasNext()
+                && (sessions.size() > properties.getMaxSessions() || totalBytes > properties.getMaxTotalBytes())) {
+            Map.Entry<String, ByteBuffer> eldest = iterator.next();
+            totalBytes -= eldest.getValue().capacity();
+            iterator.remove();
+            log.debug("淘汰会话记忆: {}", eldest.getKey());
+        }
+    }
+
+    private static byte[] encode(List<Entry> entries) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Entry entry : entries) {
+            byte[] text = entry.text.getBytes(StandardCharsets.UTF_8);
+            out.write(entry.type);
+            int length = text.length;
+            while ((length & ~0x7F) != 0) {
+                out.write((length & 0x7F) | 0x80);
+                length >>>= 7;
+            }
+            out.write(length);
+            out.write(text, 0, text.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Entry> decode(ByteBuffer stored) {
+        List<Entry> entries = new ArrayList<>();
+        if (stored == null) {
+            return entries;
+        }
+        ByteBuffer buffer = stored.duplicate();
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+            int type = buffer.get();
+            int length = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get();
+                length |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            byte[] text = new byte[length];
+            buffer.get(text);
+            entries.add(new Entry(type, new String(text, StandardCharsets.UTF_8)));
+        }
+        return entries;
+    }
+
+    private static int typeOf(MessageType messageType) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i] == messageType) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Message toMessage(Entry entry) {
+        return switch (TYPES[entry.type]) {
+            case USER -> new UserMessage(entry.text);
+            case ASSISTANT -> new AssistantMessage(entry.text);
+            default -> new SystemMessage(entry.text);
+        };
+    }
+
+    /**
+     * 估算token数：非ASCII字符按1个token，ASCII字符按4个字符1个token
+     */
+    private static int estimateTokens(List<Entry> entries) {
+        int tokens = 0;
+        for (Entry entry : entries) {
+            int ascii = 0;
+            for (int i = 0; i < entry.text.length(); i++) {
+                if (entry.text.charAt(i) < 0x80) {
+                    ascii++;
+                } else {
+                    tokens++;
+                }
+            }
+            tokens += (ascii + 3) / 4;
+        }
+        return tokens;
+    }
+
+    private static String abbreviate(String text, int maxChars) {
+        String singleLine = text.replace('\n', ' ');
+        return singleLine.length() <= maxChars ? singleLine : singleLine.substring(0, maxChars) + "...";
+    }
+
+    private record Entry(int type, String text) {
+    }
+}
@@ -0,0 +1,58 @@
+package cn.iocoder.boot.mcp.service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内会话路由背板
+ * 同一JVM中的多个应用实例共享 {@link #shared()} 实例，用于测试与单机多实例场景
+ *
+ * @author backend
+ */
+public class InMemorySessionRoutingBackplane implements SessionRoutingBackplane {
+
+    private static final InMemorySessionRoutingBackplane SHARED = new InMemorySessionRoutingBackplane();
+
+    private final Map<String, String> nodes = new ConcurrentHashMap<>();
+
+    private final Map<String, String> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 获取JVM内共享的背板实例
+     */
+    public static InMemorySessionRoutingBackplane shared() {
+        return SHARED;
+    }
+
+    @Override
+    public void registerNode(String nodeId, String baseUrl) {
+        nodes.put(nodeId, baseUrl);
+    }
+
+    @Override
+    public void unregisterNode(String nodeId) {
+        nodes.remove(nodeId);
+        sessions.values().removeIf(nodeId::equals);
+    }
+
+    @Override
+    public Optional<String> nodeUrl(String nodeId) {
+        return Optional.ofNullable(nodes.get(nodeId));
+    }
+
+    @Override
+    public void registerSession(String sessionId, String nodeId) {
+        sessions.put(sessionId, nodeId);
+    }
+
+    @Override
+    public void unregisterSession(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    @Override
+    public Optional<String> ownerOf(String sessionId) {
+        return Optional.ofNullable(sessions.get(sessionId));
+    }
+}
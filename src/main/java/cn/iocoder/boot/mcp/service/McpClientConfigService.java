@@ -1,12 +1,35 @@
 package cn.iocoder.boot.mcp.service;
 
+import cn.iocoder.boot.mcp.dto.McpBulkResult;
 import cn.iocoder.boot.mcp.dto.McpConfigResponse;
 import cn.iocoder.boot.mcp.dto.McpServerConfigRequest;
+import cn.iocoder.boot.mcp.dto.McpServerPage;
+import cn.iocoder.boot.mcp.dto.McpServerStatus;
+import cn.iocoder.boot.mcp.dto.McpServerSummary;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
  * MCP客户端配置服务
@@ -16,12 +39,69 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class McpClientConfigService {
 
+    private final StdioProcessPool stdioProcessPool;
+
     /**
-     * 存储MCP服务器配置
+     * 分页默认条数
      */
-    private final Map<String, McpServerConfigRequest> serverConfigs = new ConcurrentHashMap<>();
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * 分页最大条数
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * 单次批量操作的最大条数
+     */
+    public static final int MAX_BULK_SIZE = 500;
+
+    /**
+     * 与 GET /api/mcp/servers/page、/servers/stream 冲突的保留名称，使用这些名称的服务器无法通过 /servers/{serverName} 访问
+     */
+    public static final Set<String> RESERVED_SERVER_NAMES = Set.of("page", "stream");
+
+    /**
+     * 存储MCP服务器配置，按名称有序以支持游标分页
+     */
+    private final ConcurrentSkipListMap<String, McpServerConfigRequest> serverConfigs = new ConcurrentSkipListMap<>();
+
+    /**
+     * 服务器状态，对外以只读视图提供，读取时不复制
+     */
+    private final ConcurrentSkipListMap<String, McpServerStatus> serverStatuses = new ConcurrentSkipListMap<>();
+
+    /**
+     * 按传输类型的二级索引
+     */
+    private final Map<McpServerConfigRequest.TransportType, ConcurrentSkipListSet<String>> transportIndex =
+            indexOf(McpServerConfigRequest.TransportType.class);
+
+    /**
+     * 按状态的二级索引
+     */
+    private final Map<McpServerStatus, ConcurrentSkipListSet<String>> statusIndex = indexOf(McpServerStatus.class);
+
+    /**
+     * 配置数量（跳表的size()需要遍历）
+     */
+    private final AtomicInteger serverCount = new AtomicInteger();
+
+    /**
+     * 写操作互斥，保证主表与索引一致；读操作无锁
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * 由进程池回报STDIO进程的启动结果
+     */
+    @PostConstruct
+    void listenToProcessPool() {
+        stdioProcessPool.setStatusListener(this::updateStatus);
+    }
 
     /**
      * 配置MCP服务器连接
@@ -30,8 +110,42 @@ public class McpClientConfigService {
      * @return 配置响应
      */
     public McpConfigResponse configureMcpServer(McpServerConfigRequest configRequest) {
+        return configure(configRequest, true);
+    }
+
+    /**
+     * 批量配置MCP服务器，逐条校验，失败项不影响其他项；批量配置不预热STDIO进程
+     * 
+     * @param configRequests 配置请求列表，最多{@link #MAX_BULK_SIZE}条
+     * @return 批量结果，只包含失败项明细
+     * @throws IllegalArgumentException 超过批量上限
+     */
+    public McpBulkResult configureMcpServers(List<McpServerConfigRequest> configRequests) {
+        checkBulkSize(configRequests.size());
+        McpBulkResult result = new McpBulkResult().setTotal(configRequests.size());
+        for (McpServerConfigRequest configRequest : configRequests) {
+            if (configRequest == null) {
+                result.getFailures().add(McpConfigResponse.failure(null, "配置失败", "配置不能为空"));
+                continue;
+            }
+            McpConfigResponse response = configure(configRequest, false);
+            if (response.isSuccess()) {
+                result.setSucceeded(result.getSucceeded() + 1);
+            } else {
+                result.getFailures().add(response);
+            }
+        }
+        log.info("批量配置MCP服务器: 共{}条，成功{}条", result.getTotal(), result.getSucceeded());
+        return result;
+    }
+
+    private McpConfigResponse configure(McpServerConfigRequest configRequest, boolean verbose) {
+        McpFlightEvents.ServerConfigChange event = new McpFlightEvents.ServerConfigChange();
+        event.begin();
         try {
-            log.info("配置MCP服务器: {}", configRequest.getServerName());
+            if (verbose) {
+                log.info("配置MCP服务器: {}", configRequest.getServerName());
+            }
             
             // 验证配置
             if (configRequest.getServerName() == null || configRequest.getServerName().trim().isEmpty()) {
@@ -42,6 +156,14 @@ public class McpClientConfigService {
                 );
             }
             
+            if (RESERVED_SERVER_NAMES.contains(configRequest.getServerName())) {
+                return McpConfigResponse.failure(
+                    configRequest.getServerName(),
+                    "配置失败",
+                    "服务器名称为保留名称: " + configRequest.getServerName()
+                );
+            }
+            
             if (configRequest.getTransportType() == null) {
                 return McpConfigResponse.failure(
                     configRequest.getServerName(),
@@ -50,10 +172,24 @@ public class McpClientConfigService {
                 );
             }
             
-            // 存储配置
-            serverConfigs.put(configRequest.getServerName(), configRequest);
+            // STDIO命令需在允许列表中，拒绝时不保存配置
+            try {
+                stdioProcessPool.checkLaunchAllowed(configRequest);
+            } catch (IllegalArgumentException e) {
+                log.warn("拒绝STDIO MCP服务器配置: {}，原因: {}", configRequest.getServerName(), e.getMessage());
+                return McpConfigResponse.failure(configRequest.getServerName(), "配置失败", e.getMessage());
+            }
+            
+            // 存储配置并更新索引
+            register(configRequest);
             
-            log.info("MCP服务器配置成功: {}", configRequest.getServerName());
+            // STDIO服务器登记进程池，进程在首次调用时启动
+            stdioProcessPool.register(configRequest, verbose);
+            
+            if (verbose) {
+                log.info("MCP服务器配置成功: {}", configRequest.getServerName());
+            }
+            event.success = true;
             return McpConfigResponse.success(
                 configRequest.getServerName(),
                 "MCP服务器配置成功"
@@ -66,6 +202,8 @@ public class McpClientConfigService {
                 "配置失败",
                 e.getMessage()
             );
+        } finally {
+            commit(event, "configure", configRequest.getServerName(), configRequest.getTransportType());
         }
     }
 
@@ -86,24 +224,143 @@ public class McpClientConfigService {
      * @return 是否删除成功
      */
     public boolean removeServerConfig(String serverName) {
-        McpServerConfigRequest removed = serverConfigs.remove(serverName);
+        return remove(serverName, true);
+    }
+
+    /**
+     * 批量删除MCP服务器配置
+     * 
+     * @param serverNames 服务器名称列表，最多{@link #MAX_BULK_SIZE}条
+     * @return 批量结果，失败项为不存在的服务器
+     * @throws IllegalArgumentException 超过批量上限
+     */
+    public McpBulkResult removeServerConfigs(List<String> serverNames) {
+        checkBulkSize(serverNames.size());
+        McpBulkResult result = new McpBulkResult().setTotal(serverNames.size());
+        for (String serverName : serverNames) {
+            if (serverName == null) {
+                result.getFailures().add(McpConfigResponse.failure(null, "删除失败", "服务器名称不能为空"));
+            } else if (remove(serverName, false)) {
+                result.setSucceeded(result.getSucceeded() + 1);
+            } else {
+                result.getFailures().add(McpConfigResponse.failure(serverName, "删除失败", "服务器配置不存在"));
+            }
+        }
+        log.info("批量删除MCP服务器配置: 共{}条，删除{}条", result.getTotal(), result.getSucceeded());
+        return result;
+    }
+
+    private boolean remove(String serverName, boolean verbose) {
+        McpFlightEvents.ServerConfigChange event = new McpFlightEvents.ServerConfigChange();
+        event.begin();
+        McpServerConfigRequest removed = unregister(serverName);
         if (removed != null) {
-            log.info("删除MCP服务器配置: {}", serverName);
-            return true;
+            stdioProcessPool.shutdown(serverName);
+            if (verbose) {
+                log.info("删除MCP服务器配置: {}", serverName);
+            }
+        }
+        event.success = removed != null;
+        commit(event, "remove", serverName, removed == null ? null : removed.getTransportType());
+        return removed != null;
+    }
+
+    /**
+     * 获取所有已配置的服务器及状态
+     * 返回内部状态表的只读实时视图，不是快照：不复制，遍历为弱一致，
+     * 可能反映遍历期间的并发修改，两次读取同一服务器也可能得到不同状态；需要一致快照时由调用方自行复制
+     */
+    public Map<String, McpServerStatus> getConfiguredServers() {
+        return Collections.unmodifiableMap(serverStatuses);
+    }
+
+    /**
+     * 游标分页列出服务器，可按传输类型和状态过滤
+     * 
+     * @param cursor 上一页返回的游标，首页为空
+     * @param limit 每页条数
+     * @param transportType 传输类型过滤，可为空
+     * @param status 状态过滤，可为空
+     * @return 分页结果
+     */
+    public McpServerPage listServers(String cursor, Integer limit, McpServerConfigRequest.TransportType transportType,
+                                     McpServerStatus status) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        String after = decodeCursor(cursor);
+        List<McpServerSummary> items = new ArrayList<>(pageSize);
+        boolean more = false;
+        for (String name : matchingNames(after, transportType, status)) {
+            McpServerSummary summary = summaryOf(name);
+            if (summary == null) {
+                continue;
+            }
+            if (items.size() == pageSize) {
+                more = true;
+                break;
+            }
+            items.add(summary);
         }
-        return false;
+        return new McpServerPage()
+                .setItems(items)
+                .setNextCursor(more ? encodeCursor(items.get(items.size() - 1).getServerName()) : null);
+    }
+
+    /**
+     * 流式列出服务器，逐条发出，不在内存中聚合
+     */
+    public Flux<McpServerSummary> streamServers(McpServerConfigRequest.TransportType transportType, McpServerStatus status) {
+        return Flux.defer(() -> Flux.fromIterable(matchingNames(null, transportType, status)))
+                .mapNotNull(this::summaryOf);
     }
 
     /**
-     * 获取所有已配置的服务器
+     * 更新服务器状态，服务器不存在时忽略
      */
-    public Map<String, String> getConfiguredServers() {
-        Map<String, String> servers = new ConcurrentHashMap<>();
-        serverConfigs.forEach((name, config) -> {
-            String status = "CONFIGURED";
-            servers.put(name, status);
-        });
-        return servers;
+    public void updateStatus(String serverName, McpServerStatus status) {
+        synchronized (writeLock) {
+            McpServerStatus previous = serverStatuses.get(serverName);
+            if (previous == null || previous == status) {
+                return;
+            }
+            statusIndex.get(previous).remove(serverName);
+            statusIndex.get(status).add(serverName);
+            serverStatuses.put(serverName, status);
+        }
+    }
+
+    /**
+     * 列出STDIO服务器提供的工具
+     * 
+     * @param serverName 服务器名称
+     * @return tools/list结果
+     */
+    public Mono<JsonNode> listTools(String serverName) {
+        return stdioCall(serverName, "tools/list", null);
+    }
+
+    /**
+     * 调用STDIO服务器上的工具
+     * 
+     * @param serverName 服务器名称
+     * @param toolName 工具名称
+     * @param arguments 工具参数
+     * @return tools/call结果
+     */
+    public Mono<JsonNode> callTool(String serverName, String toolName, JsonNode arguments) {
+        ObjectNode params = JsonNodeFactory.instance.objectNode().put("name", toolName);
+        params.set("arguments", arguments == null ? JsonNodeFactory.instance.objectNode() : arguments);
+        return stdioCall(serverName, "tools/call", params);
+    }
+
+    private Mono<JsonNode> stdioCall(String serverName, String method, JsonNode params) {
+        McpServerConfigRequest config = serverConfigs.get(serverName);
+        if (config == null) {
+            return Mono.error(new NoSuchElementException("服务器配置不存在: " + serverName));
+        }
+        if (config.getTransportType() != McpServerConfigRequest.TransportType.STDIO) {
+            return Mono.error(new IllegalArgumentException("仅支持STDIO传输的服务器: " + serverName));
+        }
+        return stdioProcessPool.call(serverName, method, params);
     }
 
     /**
@@ -117,6 +374,105 @@ public class McpClientConfigService {
      * 获取配置数量
      */
     public int getConfiguredServerCount() {
-        return serverConfigs.size();
+        return serverCount.get();
+    }
+
+    private static void checkBulkSize(int size) {
+        if (size > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("单次批量操作最多" + MAX_BULK_SIZE + "条，本次" + size + "条");
+        }
+    }
+
+    private void register(McpServerConfigRequest configRequest) {
+        String serverName = configRequest.getServerName();
+        synchronized (writeLock) {
+            McpServerConfigRequest previous = serverConfigs.put(serverName, configRequest);
+            if (previous != null) {
+                transportIndex.get(previous.getTransportType()).remove(serverName);
+                statusIndex.get(serverStatuses.get(serverName)).remove(serverName);
+            } else {
+                serverCount.incrementAndGet();
+            }
+            transportIndex.get(configRequest.getTransportType()).add(serverName);
+            statusIndex.get(McpServerStatus.CONFIGURED).add(serverName);
+            serverStatuses.put(serverName, McpServerStatus.CONFIGURED);
+        }
+    }
+
+    private McpServerConfigRequest unregister(String serverName) {
+        synchronized (writeLock) {
+            McpServerConfigRequest removed = serverConfigs.remove(serverName);
+            if (removed != null) {
+                transportIndex.get(removed.getTransportType()).remove(serverName);
+                statusIndex.get(serverStatuses.remove(serverName)).remove(serverName);
+                serverCount.decrementAndGet();
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * 按过滤条件选择有序名称集合：优先遍历传输类型索引，状态条件按状态表逐条检查
+     */
+    private Iterable<String> matchingNames(String after, McpServerConfigRequest.TransportType transportType,
+                                           McpServerStatus status) {
+        NavigableSet<String> source;
+        Predicate<String> filter = name -> true;
+        if (transportType != null) {
+            source = transportIndex.get(transportType);
+            if (status != null) {
+                filter = name -> serverStatuses.get(name) == status;
+            }
+        } else if (status != null) {
+            source = statusIndex.get(status);
+        } else {
+            source = serverConfigs.keySet();
+        }
+        NavigableSet<String> tail = after == null ? source : source.tailSet(after, false);
+        Predicate<String> matches = filter;
+        return () -> tail.stream().filter(matches).iterator();
+    }
+
+    private McpServerSummary summaryOf(String serverName) {
+        McpServerConfigRequest config = serverConfigs.get(serverName);
+        McpServerStatus status = serverStatuses.get(serverName);
+        if (config == null || status == null) {
+            return null;
+        }
+        return new McpServerSummary(serverName, config.getTransportType(), status);
+    }
+
+    private static void commit(McpFlightEvents.ServerConfigChange event, String action, String serverName,
+                               McpServerConfigRequest.TransportType transportType) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.action = action;
+            event.serverName = serverName;
+            event.transportType = transportType == null ? null : transportType.name();
+            event.commit();
+        }
+    }
+
+    private static String encodeCursor(String serverName) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(serverName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor);
+        }
+    }
+
+    private static <K extends Enum<K>> Map<K, ConcurrentSkipListSet<String>> indexOf(Class<K> keyType) {
+        Map<K, ConcurrentSkipListSet<String>> index = new EnumMap<>(keyType);
+        for (K key : keyType.getEnumConstants()) {
+            index.put(key, new ConcurrentSkipListSet<>());
+        }
+        return index;
     }
-} 
\ No newline at end of file
+}
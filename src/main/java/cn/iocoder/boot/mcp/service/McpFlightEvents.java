@@ -0,0 +1,130 @@
+package cn.iocoder.boot.mcp.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * MCP自定义JFR事件
+ * 事件在未开启记录时只有一次shouldCommit判断的开销，可常驻在调用路径上；长度字段均为字符数
+ *
+ * @author backend
+ */
+public final class McpFlightEvents {
+
+    private McpFlightEvents() {
+    }
+
+    /**
+     * 工具调用
+     */
+    @Name("cn.iocoder.mcp.ToolInvocation")
+    @Label("MCP Tool Invocation")
+    @Category({"MCP", "Tool"})
+    @Description("一次@Tool方法调用，含参数解析与结果序列化")
+    @StackTrace(false)
+    public static class ToolInvocation extends Event {
+
+        @Label("Tool")
+        public String tool;
+
+        @Label("Tenant")
+        public String tenant;
+
+        @Label("Priority")
+        public String priority;
+
+        @Label("Input Length")
+        public long inputLength;
+
+        @Label("Output Length")
+        public long outputLength;
+
+        @Label("Success")
+        public boolean success;
+    }
+
+    /**
+     * AgenticRag出站请求，时长包含准入排队
+     */
+    @Name("cn.iocoder.mcp.AgenticRagRequest")
+    @Label("AgenticRag Request")
+    @Category({"MCP", "Upstream"})
+    @Description("一次AgenticRag出站请求，时长包含准入排队时间")
+    @StackTrace(false)
+    public static class AgenticRagRequest extends Event {
+
+        @Label("Path")
+        public String path;
+
+        @Label("Tenant")
+        public String tenant;
+
+        @Label("Priority")
+        public String priority;
+
+        @Label("Budget")
+        @Timespan(Timespan.MILLISECONDS)
+        public long budget;
+
+        @Label("Outcome")
+        @Description("success / failed / rejected / deadline / cancelled")
+        public String outcome;
+
+        @Label("Response Length")
+        public long responseLength;
+    }
+
+    /**
+     * ChatClient调用
+     */
+    @Name("cn.iocoder.mcp.ChatCall")
+    @Label("Chat Call")
+    @Category({"MCP", "Chat"})
+    @Description("一次ChatClient对话调用，含模型推理与工具调用")
+    @StackTrace(false)
+    public static class ChatCall extends Event {
+
+        @Label("Endpoint")
+        public String endpoint;
+
+        @Label("Tenant")
+        public String tenant;
+
+        @Label("Prompt Length")
+        public long promptLength;
+
+        @Label("Response Length")
+        public long responseLength;
+
+        @Label("Success")
+        public boolean success;
+    }
+
+    /**
+     * MCP服务器配置变更
+     */
+    @Name("cn.iocoder.mcp.ServerConfigChange")
+    @Label("MCP Server Config Change")
+    @Category({"MCP", "Config"})
+    @StackTrace(false)
+    public static class ServerConfigChange extends Event {
+
+        @Label("Server")
+        public String serverName;
+
+        @Label("Transport")
+        public String transportType;
+
+        @Label("Action")
+        @Description("configure / remove")
+        public String action;
+
+        @Label("Success")
+        public boolean success;
+    }
+}
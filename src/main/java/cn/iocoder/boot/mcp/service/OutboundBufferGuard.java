@@ -0,0 +1,315 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.config.OutboundBufferProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * 出站流的慢消费者保护
+ * 为每个连接维护有界的发送缓冲，客户端读取跟不上时按策略丢弃、合并或断开，
+ * 有待发送数据但客户端长时间未读取时判定为写超时并断开
+ *
+ * @author backend
+ */
+@Slf4j
+@Component
+public class OutboundBufferGuard {
+
+    /**
+     * 缓冲溢出策略
+     */
+    public enum OverflowStrategy {
+        /**
+         * 丢弃最早的待发送元素
+         */
+        DROP,
+        /**
+         * 将待发送元素合并为一个，合并后仍超限则断开；
+         * 只适用于合并后字节数会减少的流（如只保留最新值），简单拼接时等同于DISCONNECT
+         */
+        COALESCE,
+        /**
+         * 直接断开连接
+         */
+        DISCONNECT
+    }
+
+    private final OutboundBufferProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong totalBufferedBytes = new AtomicLong();
+
+    public OutboundBufferGuard(OutboundBufferProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("mcp.outbound.buffered.bytes.total", totalBufferedBytes, AtomicLong::get)
+                .description("所有出站连接当前缓冲的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 为出站流加上有界缓冲
+     *
+     * @param source 原始出站流
+     * @param stream 流名称，用作指标标签
+     * @param strategy 溢出策略
+     * @param sizeOf 元素字节数
+     * @param coalescer 合并两个元素，仅COALESCE策略使用，其他策略可为null
+     * @param discard 丢弃元素时的释放回调
+     * @return 受保护的出站流
+     */
+    public <T> Flux<T> guard(Flux<T> source, String stream, OverflowStrategy strategy, ToIntFunction<T> sizeOf,
+                             BinaryOperator<T> coalescer, Consumer<T> discard) {
+        if (strategy == OverflowStrategy.COALESCE && coalescer == null) {
+            throw new IllegalArgumentException("COALESCE策略需要提供合并函数: " + stream);
+        }
+        return Flux.create(sink -> {
+            Connection<T> connection = new Connection<>(sink, stream, strategy, sizeOf, coalescer, discard);
+            long checkMillis = Math.max(100, properties.getWriteTimeout().toMillis() / 4);
+            Disposable timeoutCheck = Schedulers.parallel().schedulePeriodically(
+                    connection::checkWriteTimeout, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+            Disposable upstream = source.subscribe(connection::offer, connection::fail, connection::complete);
+            sink.onRequest(n -> connection.drain());
+            sink.onDispose(() -> {
+                upstream.dispose();
+                timeoutCheck.dispose();
+                connection.discardAll();
+            });
+        });
+    }
+
+    /**
+     * 单个连接的发送缓冲
+     */
+    private final class Connection<T> {
+
+        private final FluxSink<T> sink;
+        private final String stream;
+        private final OverflowStrategy strategy;
+        private final ToIntFunction<T> sizeOf;
+        private final BinaryOperator<T> coalescer;
+        private final Consumer<T> discard;
+        private final ArrayDeque<T> pending = new ArrayDeque<>();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final DistributionSummary bufferedBytesSummary;
+
+        private long bufferedBytes;
+        private long lastProgressNanos = System.nanoTime();
+        private boolean done;
+        private boolean terminated;
+
+        Connection(FluxSink<T> sink, String stream, OverflowStrategy strategy, ToIntFunction<T> sizeOf,
+                   BinaryOperator<T> coalescer, Consumer<T> discard) {
+            this.sink = sink;
+            this.stream = stream;
+            this.strategy = strategy;
+            this.sizeOf = sizeOf;
+            this.coalescer = coalescer;
+            this.discard = discard;
+            this.bufferedBytesSummary = DistributionSummary.builder("mcp.outbound.buffered.bytes")
+                    .description("每个出站连接的缓冲字节数")
+                    .baseUnit("bytes")
+                    .tag("stream", stream)
+                    .register(meterRegistry);
+        }
+
+        void offer(T item) {
+            String disconnectReason = null;
+            synchronized (this) {
+                if (terminated) {
+                    discard.accept(item);
+                    return;
+                }
+                int size = sizeOf.applyAsInt(item);
+                boolean willBuffer = !pending.isEmpty() || sink.requestedFromDownstream() == 0;
+                if (willBuffer && bufferedBytes + size > properties.getMaxBufferedBytes()) {
+                    switch (strategy) {
+                        case DROP -> {
+                            if (size > properties.getMaxBufferedBytes()) {
+                                // 单个元素即超过上限：只丢弃它本身，它从未计入缓冲，不调整字节数
+                                discardDropped(item);
+                                item = null;
+                            } else {
+                                while (!pending.isEmpty() && bufferedBytes + size > properties.getMaxBufferedBytes()) {
+                                    drop(pending.pollFirst());
+                                }
+                            }
+                        }
+                        case COALESCE -> {
+                            T merged = pending.isEmpty() ? item : pending.pollFirst();
+                            while (!pending.isEmpty()) {
+                                merged = coalescer.apply(merged, pending.pollFirst());
+                            }
+                            if (merged != item) {
+                                merged = coalescer.apply(merged, item);
+                            }
+                            adjust(-bufferedBytes);
+                            item = merged;
+                            size = sizeOf.applyAsInt(merged);
+                            if (size > properties.getMaxBufferedBytes()) {
+                                pending.add(merged);
+                                adjust(size);
+                                item = null;
+                                disconnectReason = "overflow";
+                            }
+                        }
+                        default -> {
+                            discard.accept(item);
+                            item = null;
+                            disconnectReason = "overflow";
+                        }
+                    }
+                }
+                if (item != null) {
+                    if (pending.isEmpty()) {
+                        lastProgressNanos = System.nanoTime();
+                    }
+                    pending.add(item);
+                    adjust(size);
+                }
+                bufferedBytesSummary.record(bufferedBytes);
+            }
+            if (disconnectReason != null) {
+                disconnect(disconnectReason, new IllegalStateException("出站缓冲超过上限，断开慢消费者: " + stream));
+            } else {
+                drain();
+            }
+        }
+
+        void complete() {
+            synchronized (this) {
+                done = true;
+            }
+            drain();
+        }
+
+        void fail(Throwable error) {
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                terminated = true;
+                clearPending();
+            }
+            sink.error(error);
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (true) {
+                    T next = null;
+                    boolean complete = false;
+                    synchronized (this) {
+                        if (terminated) {
+                            break;
+                        }
+                        if (!pending.isEmpty() && sink.requestedFromDownstream() > 0) {
+                            next = pending.pollFirst();
+                            adjust(-sizeOf.applyAsInt(next));
+                            lastProgressNanos = System.nanoTime();
+                        } else if (pending.isEmpty() && done) {
+                            terminated = true;
+                            complete = true;
+                        }
+                    }
+                    if (next != null) {
+                        sink.next(next);
+                        continue;
+                    }
+                    if (complete) {
+                        sink.complete();
+                    }
+                    break;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        void checkWriteTimeout() {
+            boolean timedOut;
+            synchronized (this) {
+                timedOut = !terminated && !pending.isEmpty()
+                        && System.nanoTime() - lastProgressNanos > properties.getWriteTimeout().toNanos();
+            }
+            if (timedOut) {
+                disconnect("write-timeout", new TimeoutException("出站写超时，断开慢消费者: " + stream));
+            }
+        }
+
+        void discardAll() {
+            synchronized (this) {
+                terminated = true;
+                clearPending();
+            }
+        }
+
+        private void disconnect(String reason, Throwable error) {
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                terminated = true;
+                clearPending();
+            }
+            Counter.builder("mcp.outbound.disconnected")
+                    .description("因慢消费被断开的出站连接数")
+                    .tag("stream", stream)
+                    .tag("reason", reason)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("断开出站慢消费者: stream={}, reason={}", stream, reason);
+            sink.error(error);
+        }
+
+        /**
+         * 丢弃已计入缓冲的元素
+         */
+        private void drop(T item) {
+            adjust(-sizeOf.applyAsInt(item));
+            discardDropped(item);
+        }
+
+        private void discardDropped(T item) {
+            discard.accept(item);
+            Counter.builder("mcp.outbound.dropped")
+                    .description("因缓冲溢出被丢弃的出站元素数")
+                    .tag("stream", stream)
+                    .register(meterRegistry)
+                    .increment();
+        }
+
+        private void clearPending() {
+            T item;
+            while ((item = pending.pollFirst()) != null) {
+                discard.accept(item);
+            }
+            adjust(-bufferedBytes);
+        }
+
+        private void adjust(long delta) {
+            bufferedBytes += delta;
+            totalBufferedBytes.addAndGet(delta);
+        }
+    }
+}
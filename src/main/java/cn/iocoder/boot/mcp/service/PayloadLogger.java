@@ -0,0 +1,95 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.config.PayloadLoggingProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * 载荷日志记录器
+ * 按路由采样，只保留载荷首尾片段并脱敏，输出到独立的异步日志通道 mcp.payload
+ *
+ * @author backend
+ */
+@Component
+public class PayloadLogger {
+
+    /**
+     * 载荷日志通道，在 logback-spring.xml 中挂载异步Appender
+     */
+    public static final String LOGGER_NAME = "mcp.payload";
+
+    private static final Logger PAYLOAD_LOG = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private final PayloadLoggingProperties properties;
+
+    private final List<Pattern> redactPatterns;
+
+    public PayloadLogger(PayloadLoggingProperties properties) {
+        this.properties = properties;
+        this.redactPatterns = properties.getRedactPatterns().stream()
+                .map(Pattern::compile)
+                .toList();
+    }
+
+    /**
+     * 记录载荷（按采样率）
+     *
+     * @param route 路由（工具名或接口）
+     * @param direction 方向，如 request / response
+     * @param payload 载荷内容
+     */
+    public void log(String route, String direction, String payload) {
+        if (!properties.isEnabled() || !PAYLOAD_LOG.isInfoEnabled() || !sampled(route)) {
+            return;
+        }
+        int length = payload == null ? 0 : payload.length();
+        PAYLOAD_LOG.info("route={} direction={} length={} payload={}",
+                route, direction, length, render(payload));
+    }
+
+    private boolean sampled(String route) {
+        double rate = properties.sampleRateOf(route);
+        if (rate >= 1.0) {
+            return true;
+        }
+        return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    /**
+     * 先对完整载荷脱敏再截断，避免敏感值跨越截断边界时只有部分被替换
+     */
+    String render(String payload) {
+        return payload == null ? truncate(null) : truncate(redact(payload));
+    }
+
+    /**
+     * 保留头尾片段，中间以省略标记替代
+     */
+    String truncate(String payload) {
+        if (payload == null) {
+            return "null";
+        }
+        int head = Math.max(0, properties.getHeadChars());
+        int tail = Math.max(0, properties.getTailChars());
+        if (payload.length() <= head + tail) {
+            return payload;
+        }
+        int omitted = payload.length() - head - tail;
+        return payload.substring(0, head)
+                + "...(省略" + omitted + "字符)..."
+                + payload.substring(payload.length() - tail);
+    }
+
+    String redact(String payload) {
+        String result = payload;
+        for (Pattern pattern : redactPatterns) {
+            result = pattern.matcher(result).replaceAll("***");
+        }
+        return result;
+    }
+}
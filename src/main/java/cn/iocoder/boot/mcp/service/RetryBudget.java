@@ -0,0 +1,199 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.config.RetryProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * 带全局预算的重试策略
+ * 仅用于幂等请求：对连接失败、429与5xx按指数退避加全抖动重试，优先遵循Retry-After；
+ * 最近10秒内的重试次数不超过 保底额度 + 请求数 × 预算比例，避免上游过载时重试放大流量
+ *
+ * @author backend
+ */
+@Slf4j
+@Component
+public class RetryBudget {
+
+    private static final int WINDOW_SECONDS = 10;
+
+    private final RetryProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final long[] bucketSeconds = new long[WINDOW_SECONDS];
+    private final long[] requestCounts = new long[WINDOW_SECONDS];
+    private final long[] retryCounts = new long[WINDOW_SECONDS];
+
+    public RetryBudget(RetryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("mcp.agenticrag.retry.budget.remaining", this, RetryBudget::remaining)
+                .description("当前窗口内剩余的重试额度")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 为幂等请求加上重试，每次订阅计为一次请求
+     * 每次重试会重新订阅request，请求需在订阅时构建（如Mono.defer），以便按剩余预算重新计算超时与请求头；
+     * 退避期间不持有任何执行许可
+     *
+     * @param request 请求
+     * @param route 路由，用作指标标签
+     * @param remainingBudget 调用方剩余的时间预算，退避时间不短于剩余预算时不再重试
+     */
+    public <T> Mono<T> withRetry(Mono<T> request, String route, Supplier<Duration> remainingBudget) {
+        if (!properties.isEnabled() || properties.getMaxRetries() <= 0) {
+            return request;
+        }
+        return Mono.defer(() -> {
+            recordRequest();
+            return request.retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                Throwable failure = signal.failure();
+                if (!isRetryable(failure)) {
+                    return Mono.error(failure);
+                }
+                if (signal.totalRetries() >= properties.getMaxRetries()) {
+                    count(route, "attempts-exhausted");
+                    return Mono.error(failure);
+                }
+                Duration retryAfter = retryAfter(failure);
+                if (retryAfter != null && retryAfter.compareTo(properties.getMaxRetryAfter()) > 0) {
+                    count(route, "retry-after-too-long");
+                    return Mono.error(failure);
+                }
+                Duration delay = backoff(signal.totalRetries());
+                if (retryAfter != null && retryAfter.compareTo(delay) > 0) {
+                    delay = retryAfter;
+                }
+                if (delay.compareTo(remainingBudget.get()) >= 0) {
+                    count(route, "deadline-too-close");
+                    return Mono.error(failure);
+                }
+                if (!tryAcquireRetry()) {
+                    count(route, "budget-rejected");
+                    log.debug("重试预算已耗尽，放弃重试: route={}", route);
+                    return Mono.error(failure);
+                }
+                count(route, "retried");
+                log.debug("重试AgenticRag请求: route={}, attempt={}, delay={}ms, cause={}",
+                        route, signal.totalRetries() + 1, delay.toMillis(), failure.toString());
+                return Mono.delay(delay);
+            })));
+        });
+    }
+
+    /**
+     * 指数退避加全抖动：在[0, min(上限, 初始值×2^n)]内随机
+     */
+    Duration backoff(long retries) {
+        long cap = properties.getMaxBackoff().toMillis();
+        long ceiling = Math.min(cap, properties.getInitialBackoff().toMillis() << Math.min(retries, 20));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    synchronized void recordRequest() {
+        requestCounts[bucket()]++;
+    }
+
+    synchronized boolean tryAcquireRetry() {
+        if (remaining() < 1) {
+            return false;
+        }
+        retryCounts[bucket()]++;
+        return true;
+    }
+
+    /**
+     * 当前窗口内剩余的重试额度
+     */
+    synchronized double remaining() {
+        bucket();
+        long requests = 0;
+        long retries = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            requests += requestCounts[i];
+            retries += retryCounts[i];
+        }
+        return properties.getMinRetriesPerSecond() * WINDOW_SECONDS + requests * properties.getBudgetRatio() - retries;
+    }
+
+    /**
+     * 定位当前秒的桶，并清空已滑出窗口的桶
+     */
+    private int bucket() {
+        long second = System.currentTimeMillis() / 1000;
+        int index = (int) (second % WINDOW_SECONDS);
+        if (bucketSeconds[index] != second) {
+            bucketSeconds[index] = second;
+            requestCounts[index] = 0;
+            retryCounts[index] = 0;
+        }
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (second - bucketSeconds[i] >= WINDOW_SECONDS) {
+                requestCounts[i] = 0;
+                retryCounts[i] = 0;
+            }
+        }
+        return index;
+    }
+
+    private static boolean isRetryable(Throwable failure) {
+        if (failure instanceof WebClientRequestException) {
+            return true;
+        }
+        if (failure instanceof WebClientResponseException responseException) {
+            HttpStatusCode status = responseException.getStatusCode();
+            return status.value() == 429 || status.is5xxServerError();
+        }
+        return false;
+    }
+
+    /**
+     * 解析Retry-After（秒数或HTTP日期），不存在或无法解析时返回null
+     */
+    static Duration retryAfter(Throwable failure) {
+        if (!(failure instanceof WebClientResponseException responseException)) {
+            return null;
+        }
+        String value = responseException.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration delay = Duration.between(ZonedDateTime.now(at.getZone()), at);
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private void count(String route, String result) {
+        Counter.builder("mcp.agenticrag.retries")
+                .description("AgenticRag请求重试决策次数")
+                .tag("route", route)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,415 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.config.ChatRoutingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.function.FunctionCallingOptions;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按延迟SLO路由的对话模型
+ * 根据估算的提示token数与是否携带工具筛选可用路由，优先使用排在前面的路由；
+ * 其滑动窗口内的延迟分位数超过SLO时改走降级路由，模型调用失败时同样降级重试一次。
+ * 工具调用循环由路由自身执行：每轮只对模型请求计时和降级，工具执行耗时（如AgenticRag）不计入模型延迟，
+ * 工具执行失败也不会触发降级重放
+ *
+ * @author backend
+ */
+@Slf4j
+public class RoutingChatModel implements ChatModel {
+
+    /**
+     * 单个路由保留的最大延迟样本数
+     */
+    private static final int MAX_SAMPLES = 1024;
+
+    private final ChatRoutingProperties properties;
+    private final Map<String, RouteState> routes = new LinkedHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final ToolCallingManager toolCallingManager;
+
+    public RoutingChatModel(ChatRoutingProperties properties, Map<String, ChatModel> targets, MeterRegistry meterRegistry) {
+        this(properties, targets, meterRegistry, ToolCallingManager.builder().build());
+    }
+
+    /**
+     * @param properties 路由配置
+     * @param targets 路由名称 -> 实际调用的模型，顺序与配置一致
+     * @param meterRegistry 指标注册表
+     * @param toolCallingManager 执行模型返回的工具调用
+     */
+    public RoutingChatModel(ChatRoutingProperties properties, Map<String, ChatModel> targets, MeterRegistry meterRegistry,
+                            ToolCallingManager toolCallingManager) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.toolCallingManager = toolCallingManager;
+        for (ChatRoutingProperties.Route route : properties.getRoutes()) {
+            ChatModel target = targets.get(route.getName());
+            if (target == null) {
+                throw new IllegalStateException("未找到路由对应的模型: " + route.getName());
+            }
+            routes.put(route.getName(), new RouteState(route, target));
+        }
+        if (routes.isEmpty()) {
+            throw new IllegalStateException("模型路由至少需要配置一条路由");
+        }
+    }
+
+    /**
+     * 包装模型，调用时将请求选项中的模型名称替换为指定模型
+     */
+    public static ChatModel pinned(ChatModel delegate, String model) {
+        return new ModelPinnedChatModel(delegate, model);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        if (!(prompt.getOptions() instanceof ToolCallingChatOptions options)
+                || !ToolCallingChatOptions.isInternalToolExecutionEnabled(options)) {
+            // 调用方自行执行工具，或选项无法关闭内部工具执行
+            return callModel(prompt);
+        }
+        ToolCallingChatOptions modelOnly = options.copy();
+        modelOnly.setInternalToolExecutionEnabled(false);
+        Prompt round = new Prompt(prompt.getInstructions(), modelOnly);
+        while (true) {
+            ChatResponse response = callModel(round);
+            if (response == null || !response.hasToolCalls()) {
+                return response;
+            }
+            ToolExecutionResult result = toolCallingManager.executeToolCalls(round, response);
+            if (result.returnDirect()) {
+                return ChatResponse.builder()
+                        .from(response)
+                        .generations(ToolExecutionResult.buildGenerations(result))
+                        .build();
+            }
+            round = new Prompt(result.conversationHistory(), modelOnly);
+        }
+    }
+
+    /**
+     * 单轮模型请求：选择路由并计时，模型或传输失败时降级重试一次
+     */
+    private ChatResponse callModel(Prompt prompt) {
+        Decision decision = choose(prompt);
+        try {
+            return invoke(decision.route(), prompt);
+        } catch (ToolExecutionException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            RouteState fallback = fallbackOf(decision.route());
+            if (fallback == null) {
+                throw e;
+            }
+            log.warn("模型路由{}调用失败，降级到{}: {}", decision.route().name(), fallback.name(), e.getMessage());
+            count(fallback, "error-fallback");
+            return invoke(fallback, prompt);
+        }
+    }
+
+    /**
+     * 流式调用只在开始前选择路由，已开始输出后不再降级；
+     * 携带工具的流式调用包含工具执行耗时，不计入延迟样本
+     */
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            RouteState route = choose(prompt).route();
+            if (toolsNeeded(prompt)) {
+                return route.target.stream(prompt);
+            }
+            long start = System.nanoTime();
+            return route.target.stream(prompt)
+                    .doOnError(e -> route.record(Math.max(System.nanoTime() - start, route.route.getSlo().toNanos())))
+                    .doOnComplete(() -> route.record(System.nanoTime() - start));
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return routes.values().iterator().next().target.getDefaultOptions();
+    }
+
+    /**
+     * 选择本次调用的路由
+     */
+    Decision choose(Prompt prompt) {
+        int promptTokens = estimateTokens(prompt);
+        boolean toolsNeeded = toolsNeeded(prompt);
+
+        List<RouteState> eligible = new ArrayList<>();
+        for (RouteState route : routes.values()) {
+            if (promptTokens <= route.route.getMaxPromptTokens() && (!toolsNeeded || route.route.isTools())) {
+                eligible.add(route);
+            }
+        }
+        if (eligible.isEmpty()) {
+            // 没有完全匹配的路由时退回到全部路由，由上游模型自行报错
+            eligible.addAll(routes.values());
+        }
+
+        RouteState primary = eligible.get(0);
+        if (primary.withinSlo()) {
+            return decide(primary, "primary", promptTokens, toolsNeeded);
+        }
+        if (primary.tryProbe()) {
+            // 半开探测：超出SLO的主路由按间隔放行单个请求，积累新样本后重新判定
+            return decide(primary, "probe", promptTokens, toolsNeeded);
+        }
+        RouteState fallback = fallbackOf(primary);
+        if (fallback != null && eligible.contains(fallback) && fallback.withinSlo()) {
+            return decide(fallback, "slo-fallback", promptTokens, toolsNeeded);
+        }
+        for (RouteState candidate : eligible) {
+            if (candidate.withinSlo()) {
+                return decide(candidate, "slo-fallback", promptTokens, toolsNeeded);
+            }
+        }
+        // 全部超出SLO时选择当前延迟最低的路由，没有足够新样本的路由不参与比较
+        RouteState fastest = primary;
+        long fastestNanos = primary.percentileNanos();
+        for (RouteState candidate : eligible) {
+            long nanos = candidate.percentileNanos();
+            if (nanos >= 0 && (fastestNanos < 0 || nanos < fastestNanos)) {
+                fastest = candidate;
+                fastestNanos = nanos;
+            }
+        }
+        return decide(fastest, "least-latency", promptTokens, toolsNeeded);
+    }
+
+    /**
+     * 当前各路由窗口内的延迟分位数，未达到最少样本数的路由不包含在内
+     */
+    public Map<String, Duration> latencyPercentiles() {
+        Map<String, Duration> result = new LinkedHashMap<>();
+        for (RouteState route : routes.values()) {
+            long nanos = route.percentileNanos();
+            if (nanos >= 0) {
+                result.put(route.name(), Duration.ofNanos(nanos));
+            }
+        }
+        return result;
+    }
+
+    private Decision decide(RouteState route, String reason, int promptTokens, boolean toolsNeeded) {
+        count(route, reason);
+        log.debug("模型路由: route={}, reason={}, promptTokens={}, tools={}", route.name(), reason, promptTokens, toolsNeeded);
+        return new Decision(route, reason);
+    }
+
+    private ChatResponse invoke(RouteState route, Prompt prompt) {
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = route.target.call(prompt);
+            route.record(System.nanoTime() - start);
+            return response;
+        } catch (RuntimeException e) {
+            // 失败按不低于SLO的延迟计入，使持续失败的路由被判定为超出SLO
+            route.record(Math.max(System.nanoTime() - start, route.route.getSlo().toNanos()));
+            throw e;
+        }
+    }
+
+    private RouteState fallbackOf(RouteState route) {
+        String fallback = route.route.getFallback();
+        if (fallback == null || fallback.equals(route.name())) {
+            return null;
+        }
+        return routes.get(fallback);
+    }
+
+    private void count(RouteState route, String reason) {
+        Counter.builder("mcp.chat.routing.decisions")
+                .description("模型路由决策次数")
+                .tag("route", route.name())
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static boolean toolsNeeded(Prompt prompt) {
+        if (prompt.getOptions() instanceof FunctionCallingOptions options) {
+            return (options.getFunctionCallbacks() != null && !options.getFunctionCallbacks().isEmpty())
+                    || (options.getFunctions() != null && !options.getFunctions().isEmpty());
+        }
+        return false;
+    }
+
+    /**
+     * 估算token数：非ASCII字符按1个token，ASCII字符按4个字符1个token
+     */
+    static int estimateTokens(Prompt prompt) {
+        int tokens = 0;
+        for (Message message : prompt.getInstructions()) {
+            String text = message.getText();
+            if (text == null) {
+                continue;
+            }
+            int ascii = 0;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) < 0x80) {
+                    ascii++;
+                } else {
+                    tokens++;
+                }
+            }
+            tokens += (ascii + 3) / 4;
+        }
+        return tokens;
+    }
+
+    record Decision(RouteState route, String reason) {
+    }
+
+    /**
+     * 单条路由的运行时状态：目标模型与滑动窗口内的延迟样本
+     */
+    final class RouteState {
+
+        private final ChatRoutingProperties.Route route;
+        private final ChatModel target;
+        private final Timer timer;
+        private final ArrayDeque<long[]> samples = new ArrayDeque<>();
+
+        /**
+         * 最近一次有足够样本时的判定结果，样本过期后保留，直到积累足够的新样本
+         */
+        private boolean overSlo;
+        private long lastProbeMillis;
+
+        RouteState(ChatRoutingProperties.Route route, ChatModel target) {
+            this.route = route;
+            this.target = target;
+            this.timer = Timer.builder("mcp.chat.routing.latency")
+                    .description("各路由的模型调用延迟")
+                    .tag("route", route.getName())
+                    .register(meterRegistry);
+        }
+
+        String name() {
+            return route.getName();
+        }
+
+        synchronized void record(long latencyNanos) {
+            timer.record(latencyNanos, TimeUnit.NANOSECONDS);
+            samples.addLast(new long[]{System.currentTimeMillis(), latencyNanos});
+            if (samples.size() > MAX_SAMPLES) {
+                samples.pollFirst();
+            }
+        }
+
+        synchronized boolean withinSlo() {
+            long nanos = percentileNanos();
+            if (nanos >= 0) {
+                boolean over = nanos > route.getSlo().toNanos();
+                if (over && !overSlo) {
+                    lastProbeMillis = System.currentTimeMillis();
+                }
+                overSlo = over;
+            }
+            return !overSlo;
+        }
+
+        /**
+         * 超出SLO时按探测间隔放行单个请求
+         */
+        synchronized boolean tryProbe() {
+            long now = System.currentTimeMillis();
+            if (!overSlo || now - lastProbeMillis < properties.getProbeInterval().toMillis()) {
+                return false;
+            }
+            lastProbeMillis = now;
+            return true;
+        }
+
+        /**
+         * 窗口内的延迟分位数，样本不足时返回-1
+         */
+        synchronized long percentileNanos() {
+            long horizon = System.currentTimeMillis() - properties.getWindow().toMillis();
+            Iterator<long[]> iterator = samples.iterator();
+            while (iterator.hasNext() && iterator.next()[0] < horizon) {
+                iterator.remove();
+            }
+            if (samples.size() < Math.max(1, properties.getMinSamples())) {
+                return -1;
+            }
+            long[] latencies = new long[samples.size()];
+            int i = 0;
+            for (long[] sample : samples) {
+                latencies[i++] = sample[1];
+            }
+            Arrays.sort(latencies);
+            int index = (int) Math.ceil(properties.getPercentile() * latencies.length) - 1;
+            return latencies[Math.min(latencies.length - 1, Math.max(0, index))];
+        }
+    }
+
+    /**
+     * 固定模型名称的包装模型
+     */
+    private static final class ModelPinnedChatModel implements ChatModel {
+
+        private final ChatModel delegate;
+        private final String model;
+
+        ModelPinnedChatModel(ChatModel delegate, String model) {
+            this.delegate = delegate;
+            this.model = model;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            return delegate.call(pin(prompt));
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            return delegate.stream(pin(prompt));
+        }
+
+        @Override
+        public ChatOptions getDefaultOptions() {
+            return delegate.getDefaultOptions();
+        }
+
+        private Prompt pin(Prompt prompt) {
+            ChatOptions options = prompt.getOptions();
+            OpenAiChatOptions pinned;
+            if (options instanceof OpenAiChatOptions openAiOptions) {
+                pinned = openAiOptions.copy();
+            } else if (options == null) {
+                pinned = OpenAiChatOptions.builder().build();
+            } else {
+                log.debug("非OpenAI请求选项，无法指定模型: {}", options.getClass().getSimpleName());
+                return prompt;
+            }
+            pinned.setModel(model);
+            return new Prompt(prompt.getInstructions(), pinned);
+        }
+    }
+}
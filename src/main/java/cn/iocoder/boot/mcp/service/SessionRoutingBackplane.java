@@ -0,0 +1,43 @@
+package cn.iocoder.boot.mcp.service;
+
+import java.util.Optional;
+
+/**
+ * MCP SSE会话路由背板
+ * 记录每个SSE会话所在的节点以及各节点的访问地址，供消息请求跨节点转发使用；
+ * 多实例部署时可替换为基于共享存储或消息代理的实现
+ *
+ * @author backend
+ */
+public interface SessionRoutingBackplane {
+
+    /**
+     * 注册节点访问地址
+     */
+    void registerNode(String nodeId, String baseUrl);
+
+    /**
+     * 注销节点及其所有会话
+     */
+    void unregisterNode(String nodeId);
+
+    /**
+     * 获取节点访问地址
+     */
+    Optional<String> nodeUrl(String nodeId);
+
+    /**
+     * 登记会话所在节点
+     */
+    void registerSession(String sessionId, String nodeId);
+
+    /**
+     * 注销会话
+     */
+    void unregisterSession(String sessionId);
+
+    /**
+     * 查询会话所在节点
+     */
+    Optional<String> ownerOf(String sessionId);
+}
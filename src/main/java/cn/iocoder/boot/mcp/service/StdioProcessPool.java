@@ -0,0 +1,472 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.dto.McpServerConfigRequest;
+import cn.iocoder.boot.mcp.dto.McpServerStatus;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * STDIO传输MCP服务器进程池
+ * 保存配置时不启动进程（除非显式开启预热），首次租借时按池大小启动并初始化进程；
+ * 调用次数或内存超限后回收替换，退出的进程在租借时或定期健康检查中被替换，启动失败按退避间隔重试；
+ * 只启动allowed-commands中列出的命令，列表为空时不允许登记任何STDIO服务器
+ *
+ * @author backend
+ */
+@Slf4j
+@Service
+public class StdioProcessPool {
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, ServerPool> pools = new ConcurrentHashMap<>();
+
+    private final ExecutorService spawnExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "mcp-stdio-spawn");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${mcp.stdio.pool.size:2}")
+    private int poolSize = 2;
+
+    @Value("${mcp.stdio.pool.max-calls-per-process:1000}")
+    private int maxCallsPerProcess = 1000;
+
+    @Value("${mcp.stdio.pool.max-memory-mb:512}")
+    private long maxMemoryMb = 512;
+
+    @Value("${mcp.stdio.pool.max-concurrent-per-process:4}")
+    private int maxConcurrentPerProcess = 4;
+
+    @Value("${mcp.stdio.pool.init-timeout:30s}")
+    private Duration initTimeout = Duration.ofSeconds(30);
+
+    @Value("${mcp.stdio.pool.lease-timeout:10s}")
+    private Duration leaseTimeout = Duration.ofSeconds(10);
+
+    @Value("${mcp.stdio.pool.call-timeout:60s}")
+    private Duration callTimeout = Duration.ofSeconds(60);
+
+    /**
+     * 保存配置时即启动进程，默认关闭：配置来自接口请求，保存不应直接执行其中的命令
+     */
+    @Value("${mcp.stdio.pool.warm-up-on-configure:false}")
+    private boolean warmUpOnConfigure = false;
+
+    /**
+     * 允许启动的命令，按command原样精确匹配；默认为空，即关闭STDIO进程启动。
+     * 配置来自未鉴权的接口请求，args与env仍由调用方决定，只应列出参数无法被滥用的命令
+     */
+    @Value("${mcp.stdio.pool.allowed-commands:}")
+    private Set<String> allowedCommands = Set.of();
+
+    @Value("${mcp.stdio.pool.health-check-interval:10s}")
+    private Duration healthCheckInterval = Duration.ofSeconds(10);
+
+    @Value("${mcp.stdio.pool.spawn-retry-backoff:5s}")
+    private Duration spawnRetryBackoff = Duration.ofSeconds(5);
+
+    /**
+     * 进程池状态变化的回调：有进程启动成功时为READY，启动失败且没有可用进程时为FAILED
+     */
+    private volatile BiConsumer<String, McpServerStatus> statusListener = (serverName, status) -> {
+    };
+
+    private final ScheduledExecutorService healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mcp-stdio-health");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StdioProcessPool(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 定期替换已退出的进程，并重试启动失败的进程池
+     */
+    @PostConstruct
+    public void startHealthCheck() {
+        long intervalMillis = Math.max(100, healthCheckInterval.toMillis());
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void setStatusListener(BiConsumer<String, McpServerStatus> statusListener) {
+        this.statusListener = statusListener;
+    }
+
+    /**
+     * 登记STDIO配置并在开启warm-up-on-configure时预热
+     *
+     * @param config 服务器配置
+     */
+    public void register(McpServerConfigRequest config) {
+        register(config, true);
+    }
+
+    /**
+     * 登记STDIO配置，已存在的同名进程池会被替换；同名服务器改为其他传输类型时关闭原进程池。
+     * 仅在warmUp为true且开启warm-up-on-configure时立即启动进程，否则在首次租借时启动
+     *
+     * @param config 服务器配置
+     * @param warmUp 是否允许预热，批量配置时为false
+     * @throws IllegalArgumentException 命令不在allowed-commands中
+     */
+    public void register(McpServerConfigRequest config, boolean warmUp) {
+        if (config.getTransportType() != McpServerConfigRequest.TransportType.STDIO || config.getStdioConfig() == null) {
+            shutdown(config.getServerName());
+            return;
+        }
+        checkLaunchAllowed(config);
+        ServerPool pool = new ServerPool(config.getServerName(), config.getStdioConfig());
+        ServerPool previous = pools.put(config.getServerName(), pool);
+        if (previous != null) {
+            previous.close();
+        }
+        if (warmUp && warmUpOnConfigure) {
+            log.debug("预热STDIO MCP服务器进程池: {}，进程数: {}", config.getServerName(), poolSize);
+            pool.start();
+        }
+    }
+
+    /**
+     * 校验STDIO配置的命令是否允许启动，非STDIO配置直接通过
+     *
+     * @param config 服务器配置
+     * @throws IllegalArgumentException 命令不在allowed-commands中
+     */
+    public void checkLaunchAllowed(McpServerConfigRequest config) {
+        if (config.getTransportType() != McpServerConfigRequest.TransportType.STDIO || config.getStdioConfig() == null) {
+            return;
+        }
+        String command = config.getStdioConfig().getCommand();
+        if (allowedCommands.isEmpty()) {
+            throw new IllegalArgumentException("未开启STDIO进程启动，请在mcp.stdio.pool.allowed-commands中配置允许的命令");
+        }
+        if (command == null || !allowedCommands.contains(command)) {
+            throw new IllegalArgumentException("STDIO命令不在允许列表中: " + command);
+        }
+    }
+
+    /**
+     * 租借一个已初始化的进程，使用完毕后需关闭租约
+     *
+     * @param serverName 服务器名称
+     * @return 进程租约
+     */
+    public Lease lease(String serverName) throws Exception {
+        ServerPool pool = pools.get(serverName);
+        if (pool == null) {
+            throw new IllegalStateException("STDIO MCP服务器未配置进程池: " + serverName);
+        }
+        return pool.lease();
+    }
+
+    /**
+     * 租借进程发送一次JSON-RPC请求，响应后归还进程
+     *
+     * @param serverName 服务器名称
+     * @param method 方法，如tools/list、tools/call
+     * @param params 参数，可为空
+     * @return 请求结果
+     */
+    public Mono<JsonNode> call(String serverName, String method, JsonNode params) {
+        return Mono.using(() -> lease(serverName),
+                        lease -> Mono.fromFuture(() -> lease.request(method, params))
+                                .timeout(callTimeout),
+                        Lease::close)
+                // 租借可能阻塞等待进程启动
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 关闭指定服务器的进程池
+     */
+    public void shutdown(String serverName) {
+        ServerPool pool = pools.remove(serverName);
+        if (pool != null) {
+            log.info("关闭STDIO MCP服务器进程池: {}", serverName);
+            pool.close();
+        }
+    }
+
+    /**
+     * 已就绪的进程数
+     */
+    public int readyCount(String serverName) {
+        ServerPool pool = pools.get(serverName);
+        return pool == null ? 0 : pool.processes.size();
+    }
+
+    @PreDestroy
+    public void shutdownAll() {
+        healthChecker.shutdownNow();
+        new ArrayList<>(pools.keySet()).forEach(this::shutdown);
+        spawnExecutor.shutdownNow();
+    }
+
+    void checkHealth() {
+        for (ServerPool pool : pools.values()) {
+            try {
+                pool.maintain();
+            } catch (Exception e) {
+                log.warn("STDIO MCP服务器进程池健康检查失败: {}，原因: {}", pool.serverName, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 进程租约，关闭时归还进程
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final ServerPool pool;
+        private final StdioServerProcess process;
+        private boolean closed;
+
+        private Lease(ServerPool pool, StdioServerProcess process) {
+            this.pool = pool;
+            this.process = process;
+        }
+
+        /**
+         * 在租借的进程上发送JSON-RPC请求
+         */
+        public CompletableFuture<JsonNode> request(String method, JsonNode params) {
+            return process.request(method, params);
+        }
+
+        public StdioServerProcess process() {
+            return process;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                pool.release(process);
+            }
+        }
+    }
+
+    /**
+     * 单个服务器配置的进程池
+     */
+    private final class ServerPool {
+
+        private final String serverName;
+        private final McpServerConfigRequest.StdioConfig config;
+        private final List<StdioServerProcess> processes = new CopyOnWriteArrayList<>();
+        private final Semaphore slots;
+        private final AtomicInteger spawning = new AtomicInteger();
+        private volatile boolean started;
+        private volatile boolean closed;
+        private volatile Exception lastSpawnFailure;
+        private volatile long lastSpawnFailureNanos;
+
+        ServerPool(String serverName, McpServerConfigRequest.StdioConfig config) {
+            this.serverName = serverName;
+            this.config = config;
+            this.slots = new Semaphore(poolSize * Math.max(1, maxConcurrentPerProcess));
+        }
+
+        void start() {
+            started = true;
+            maintain();
+        }
+
+        /**
+         * 移除已退出的进程，并补足到池大小；上次启动失败后的退避间隔内不补足
+         */
+        void maintain() {
+            if (closed || !started) {
+                return;
+            }
+            for (StdioServerProcess process : processes) {
+                if (!process.isAlive() && !process.isRetired()) {
+                    log.warn("STDIO MCP服务器进程已退出，将替换: {}，pid: {}", serverName, process.pid());
+                    if (retire(process)) {
+                        process.close();
+                    }
+                }
+            }
+            synchronized (this) {
+                if (lastSpawnFailure != null
+                        && System.nanoTime() - lastSpawnFailureNanos < spawnRetryBackoff.toNanos()) {
+                    return;
+                }
+                int missing = poolSize - processes.size() - spawning.get();
+                for (int i = 0; i < missing; i++) {
+                    spawning.incrementAndGet();
+                    CompletableFuture.runAsync(this::spawn, spawnExecutor);
+                }
+            }
+        }
+
+        private void spawn() {
+            StdioServerProcess process = null;
+            try {
+                if (closed) {
+                    return;
+                }
+                process = StdioServerProcess.start(serverName, config, objectMapper);
+                process.initialize(initTimeout);
+                if (closed) {
+                    process.close();
+                    return;
+                }
+                processes.add(process);
+                lastSpawnFailure = null;
+                statusListener.accept(serverName, McpServerStatus.READY);
+            } catch (Exception e) {
+                log.error("启动STDIO MCP服务器进程失败: {}，原因: {}", serverName, e.getMessage());
+                lastSpawnFailureNanos = System.nanoTime();
+                lastSpawnFailure = e;
+                if (process != null) {
+                    process.close();
+                }
+                // 已被替换的进程池不再上报，避免覆盖新配置的状态
+                if (!closed && processes.isEmpty()) {
+                    statusListener.accept(serverName, McpServerStatus.FAILED);
+                }
+            } finally {
+                spawning.decrementAndGet();
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        Lease lease() throws Exception {
+            long deadline = System.nanoTime() + leaseTimeout.toNanos();
+            started = true;
+            maintain();
+            if (!slots.tryAcquire(leaseTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException("获取STDIO MCP服务器进程超时: " + serverName);
+            }
+            try {
+                while (true) {
+                    StdioServerProcess process = pickLeastLoaded();
+                    if (process != null) {
+                        return new Lease(this, process);
+                    }
+                    Exception failure = lastSpawnFailure;
+                    if (failure != null && spawning.get() == 0 && processes.isEmpty()) {
+                        throw new IllegalStateException("STDIO MCP服务器进程启动失败: " + serverName
+                                + "，原因: " + failure.getMessage(), failure);
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (closed || remaining <= 0) {
+                        throw new TimeoutException("没有可用的STDIO MCP服务器进程: " + serverName);
+                    }
+                    synchronized (this) {
+                        TimeUnit.NANOSECONDS.timedWait(this, Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)));
+                    }
+                    maintain();
+                }
+            } catch (Exception e) {
+                slots.release();
+                throw e;
+            }
+        }
+
+        /**
+         * 选出当前租借数最少且未超过复用上限的进程；与retire、release在同一把锁内，
+         * 已退役的进程不会再被租出
+         */
+        private synchronized StdioServerProcess pickLeastLoaded() {
+            StdioServerProcess selected = processes.stream()
+                    .filter(p -> !p.isRetired() && p.isAlive())
+                    .filter(p -> p.activeLeases().get() < Math.max(1, maxConcurrentPerProcess))
+                    .min(Comparator.comparingInt(p -> p.activeLeases().get()))
+                    .orElse(null);
+            if (selected != null) {
+                selected.activeLeases().incrementAndGet();
+            }
+            return selected;
+        }
+
+        void release(StdioServerProcess process) {
+            // 读取内存占用较慢，在锁外判断
+            boolean recycle = !process.isRetired() && shouldRecycle(process);
+            boolean recycled = false;
+            boolean idle;
+            synchronized (this) {
+                process.activeLeases().decrementAndGet();
+                if (recycle && !process.isRetired()) {
+                    process.retire();
+                    processes.remove(process);
+                    recycled = true;
+                }
+                idle = process.isRetired() && process.activeLeases().get() == 0;
+                notifyAll();
+            }
+            slots.release();
+
+            if (recycled) {
+                log.info("回收STDIO MCP服务器进程: {}，pid: {}，调用次数: {}",
+                        serverName, process.pid(), process.getCallCount());
+                maintain();
+            }
+            // 已退役且没有租约：不会再被租出，也只有这一处观察到租约归零
+            if (idle) {
+                process.close();
+            }
+        }
+
+        /**
+         * 退役进程并移出池，返回此时是否已没有租约；已退役的进程返回false，由先退役的一方负责关闭
+         */
+        private synchronized boolean retire(StdioServerProcess process) {
+            if (process.isRetired()) {
+                return false;
+            }
+            process.retire();
+            processes.remove(process);
+            return process.activeLeases().get() == 0;
+        }
+
+        private boolean shouldRecycle(StdioServerProcess process) {
+            if (!process.isAlive() || process.getCallCount() >= maxCallsPerProcess) {
+                return true;
+            }
+            long rss = process.residentMemoryBytes();
+            return rss > 0 && rss > maxMemoryMb * 1024 * 1024;
+        }
+
+        void close() {
+            closed = true;
+            for (StdioServerProcess process : processes) {
+                if (retire(process)) {
+                    process.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.dto.McpServerConfigRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个STDIO传输MCP服务器进程
+ * 基于JSON-RPC的请求ID复用同一进程上的并发请求
+ *
+ * @author backend
+ */
+@Slf4j
+public class StdioServerProcess implements AutoCloseable {
+
+    private static final String PROTOCOL_VERSION = "2024-11-05";
+
+    private final String serverName;
+    private final Process process;
+    private final BufferedWriter writer;
+    private final ObjectMapper objectMapper;
+    private final Map<Long, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicInteger callCount = new AtomicInteger();
+    private final AtomicInteger activeLeases = new AtomicInteger();
+    private volatile boolean retired;
+
+    private StdioServerProcess(String serverName, Process process, ObjectMapper objectMapper) {
+        this.serverName = serverName;
+        this.process = process;
+        this.objectMapper = objectMapper;
+        this.writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+
+        Thread reader = new Thread(this::readLoop, "mcp-stdio-" + serverName + "-" + process.pid());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * 按配置启动进程
+     */
+    public static StdioServerProcess start(String serverName, McpServerConfigRequest.StdioConfig config,
+                                           ObjectMapper objectMapper) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(config.getCommand());
+        if (config.getArgs() != null) {
+            command.addAll(config.getArgs());
+        }
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+        if (config.getEnv() != null) {
+            builder.environment().putAll(config.getEnv());
+        }
+
+        Process process = builder.start();
+        log.info("启动STDIO MCP服务器进程: {}，pid: {}", serverName, process.pid());
+        return new StdioServerProcess(serverName, process, objectMapper);
+    }
+
+    /**
+     * 完成MCP初始化握手
+     */
+    public void initialize(Duration timeout) throws Exception {
+        ObjectNode params = objectMapper.createObjectNode()
+                .put("protocolVersion", PROTOCOL_VERSION);
+        params.putObject("capabilities");
+        params.putObject("clientInfo")
+                .put("name", "mcp-stdio-pool")
+                .put("version", "1.0.0");
+
+        request("initialize", params).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        notify("notifications/initialized", null);
+    }
+
+    /**
+     * 发送JSON-RPC请求，可在同一进程上并发发起
+     */
+    public CompletableFuture<JsonNode> request(String method, JsonNode params) {
+        long id = nextId.getAndIncrement();
+        CompletableFuture<JsonNode> future = new CompletableFuture<>();
+        pending.put(id, future);
+        future.whenComplete((result, error) -> pending.remove(id));
+
+        ObjectNode message = objectMapper.createObjectNode()
+                .put("jsonrpc", "2.0")
+                .put("id", id)
+                .put("method", method);
+        if (params != null) {
+            message.set("params", params);
+        }
+
+        try {
+            write(message);
+            callCount.incrementAndGet();
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 发送JSON-RPC通知
+     */
+    public void notify(String method, JsonNode params) throws IOException {
+        ObjectNode message = objectMapper.createObjectNode()
+                .put("jsonrpc", "2.0")
+                .put("method", method);
+        if (params != null) {
+            message.set("params", params);
+        }
+        write(message);
+    }
+
+    private void write(JsonNode message) throws IOException {
+        String line = objectMapper.writeValueAsString(message);
+        synchronized (writer) {
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+        }
+    }
+
+    private void readLoop() {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                dispatch(line);
+            }
+        } catch (IOException e) {
+            log.debug("STDIO MCP服务器输出流关闭: {}，原因: {}", serverName, e.getMessage());
+        } finally {
+            failPending(new IOException("STDIO MCP服务器进程已退出: " + serverName));
+        }
+    }
+
+    private void dispatch(String line) {
+        try {
+            JsonNode message = objectMapper.readTree(line);
+            JsonNode id = message.get("id");
+            if (id == null || !id.canConvertToLong() || message.has("method")) {
+                // 服务器发起的通知或请求，连接池不处理
+                return;
+            }
+            CompletableFuture<JsonNode> future = pending.get(id.asLong());
+            if (future == null) {
+                return;
+            }
+            if (message.has("error")) {
+                future.completeExceptionally(new IllegalStateException(
+                        "MCP请求失败: " + message.get("error").toString()));
+            } else {
+                future.complete(message.get("result"));
+            }
+        } catch (IOException e) {
+            log.debug("忽略无法解析的STDIO输出: {}", line);
+        }
+    }
+
+    private void failPending(Exception cause) {
+        pending.values().forEach(future -> future.completeExceptionally(cause));
+        pending.clear();
+    }
+
+    /**
+     * 进程常驻内存（字节），无法获取时返回-1
+     */
+    public long residentMemoryBytes() {
+        Path status = Path.of("/proc", String.valueOf(process.pid()), "status");
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    String kb = line.substring("VmRSS:".length()).replace("kB", "").trim();
+                    return Long.parseLong(kb) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    public long pid() {
+        return process.pid();
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    public int getCallCount() {
+        return callCount.get();
+    }
+
+    AtomicInteger activeLeases() {
+        return activeLeases;
+    }
+
+    boolean isRetired() {
+        return retired;
+    }
+
+    void retire() {
+        retired = true;
+    }
+
+    @Override
+    public void close() {
+        retired = true;
+        failPending(new IOException("STDIO MCP服务器进程已关闭: " + serverName));
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+            // 进程可能已退出
+        }
+        process.destroy();
+        try {
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+        log.info("关闭STDIO MCP服务器进程: {}，pid: {}", serverName, process.pid());
+    }
+}
@@ -0,0 +1,157 @@
+package cn.iocoder.boot.mcp.service;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 工具调用上下文
+ * 记录当前线程上工具调用的优先级、租户、截止时间与取消信号，供准入调度和下游调用使用
+ * 
+ * @author backend
+ */
+public final class ToolInvocationContext {
+
+    /**
+     * 未指定租户时使用的租户标识
+     */
+    public static final String DEFAULT_TENANT = "default";
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private static final ToolInvocationContext DEFAULT =
+            new ToolInvocationContext(Priority.INTERACTIVE, DEFAULT_TENANT, NO_DEADLINE, new Cancellation());
+
+    private static final ThreadLocal<ToolInvocationContext> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 调用优先级，按声明顺序由高到低
+     */
+    public enum Priority {
+        INTERACTIVE, BATCH
+    }
+
+    private final Priority priority;
+    private final String tenant;
+    private final long deadlineEpochMillis;
+    private final Cancellation cancellation;
+
+    private ToolInvocationContext(Priority priority, String tenant, long deadlineEpochMillis,
+                                  Cancellation cancellation) {
+        this.priority = priority;
+        this.tenant = tenant == null || tenant.isBlank() ? DEFAULT_TENANT : tenant;
+        this.deadlineEpochMillis = deadlineEpochMillis;
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * 创建调用上下文，不设截止时间
+     */
+    public static ToolInvocationContext of(Priority priority, String tenant) {
+        return new ToolInvocationContext(priority, tenant, NO_DEADLINE, new Cancellation());
+    }
+
+    /**
+     * 获取当前线程的调用上下文，未设置时为默认租户的交互式调用
+     */
+    public static ToolInvocationContext current() {
+        ToolInvocationContext context = CURRENT.get();
+        return context != null ? context : DEFAULT;
+    }
+
+    /**
+     * 在指定上下文中执行操作，结束后恢复原上下文
+     */
+    public static <T> T callWith(ToolInvocationContext context, Supplier<T> action) {
+        ToolInvocationContext previous = CURRENT.get();
+        CURRENT.set(context);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * 以指定优先级复制当前上下文，截止时间与取消信号保持共享
+     */
+    public ToolInvocationContext withPriority(Priority priority) {
+        return new ToolInvocationContext(priority, tenant, deadlineEpochMillis, cancellation);
+    }
+
+    /**
+     * 以指定截止时间（epoch毫秒）复制当前上下文，已有更早的截止时间时保留更早者
+     */
+    public ToolInvocationContext withDeadline(long epochMillis) {
+        return new ToolInvocationContext(priority, tenant, Math.min(deadlineEpochMillis, epochMillis), cancellation);
+    }
+
+    /**
+     * 以从现在起的剩余预算复制当前上下文
+     */
+    public ToolInvocationContext withBudget(Duration budget) {
+        return withDeadline(System.currentTimeMillis() + budget.toMillis());
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    /**
+     * 截止时间（epoch毫秒），未设置时为空
+     */
+    public OptionalLong getDeadline() {
+        return deadlineEpochMillis == NO_DEADLINE ? OptionalLong.empty() : OptionalLong.of(deadlineEpochMillis);
+    }
+
+    /**
+     * 在给定超时与剩余预算之间取较小者，已超过截止时间时返回零
+     */
+    public Duration budget(Duration timeout) {
+        if (deadlineEpochMillis == NO_DEADLINE) {
+            return timeout;
+        }
+        long remaining = Math.max(0, deadlineEpochMillis - System.currentTimeMillis());
+        return remaining < timeout.toMillis() ? Duration.ofMillis(remaining) : timeout;
+    }
+
+    /**
+     * 取消本次调用，订阅了取消信号的下游请求会立即中止
+     */
+    public void cancel() {
+        if (this != DEFAULT && cancellation.cancelled.compareAndSet(false, true)) {
+            cancellation.signal.tryEmitValue(Boolean.TRUE);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancellation.cancelled.get();
+    }
+
+    /**
+     * 取消信号，调用被取消时发出一个元素
+     */
+    public Mono<Boolean> cancelled() {
+        return cancellation.signal.asMono();
+    }
+
+    /**
+     * 同一次调用派生出的上下文共享的取消状态
+     */
+    private static final class Cancellation {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final Sinks.One<Boolean> signal = Sinks.one();
+    }
+}
@@ -0,0 +1,125 @@
+package cn.iocoder.boot.mcp.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 工具描述的内存向量索引
+ * 使用本地特征哈希向量（英文单词 + 中文二元组）表示工具名与描述，按余弦相似度检索，
+ * 刷新时只重新计算描述发生变化的工具
+ *
+ * @author backend
+ */
+public class ToolSelectionIndex {
+
+    private static final int DIMENSION = 1024;
+
+    private final Map<String, IndexedTool> tools = new HashMap<>();
+
+    /**
+     * 检索结果
+     */
+    public record ScoredTool(String name, double score) {
+    }
+
+    private record IndexedTool(String description, float[] vector) {
+    }
+
+    /**
+     * 按最新工具集合增量刷新索引
+     *
+     * @param descriptionsByName 工具名到描述的映射
+     * @return 重新计算向量的工具数
+     */
+    public synchronized int refresh(Map<String, String> descriptionsByName) {
+        tools.keySet().retainAll(descriptionsByName.keySet());
+        int updated = 0;
+        for (Map.Entry<String, String> entry : descriptionsByName.entrySet()) {
+            String description = entry.getValue() == null ? "" : entry.getValue();
+            IndexedTool existing = tools.get(entry.getKey());
+            if (existing == null || !existing.description().equals(description)) {
+                tools.put(entry.getKey(), new IndexedTool(description, embed(entry.getKey() + " " + description)));
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * 检索与文本最相关的前k个工具
+     */
+    public synchronized List<ScoredTool> search(String text, int k) {
+        float[] query = embed(text);
+        List<ScoredTool> scored = new ArrayList<>(tools.size());
+        tools.forEach((name, tool) -> scored.add(new ScoredTool(name, dot(query, tool.vector()))));
+        scored.sort(Comparator.comparingDouble(ScoredTool::score).reversed());
+        return scored.subList(0, Math.min(k, scored.size()));
+    }
+
+    public synchronized int size() {
+        return tools.size();
+    }
+
+    /**
+     * 文本向量化：驼峰与符号切分的英文单词、中文字符二元组，哈希到固定维度后归一化
+     */
+    static float[] embed(String text) {
+        float[] vector = new float[DIMENSION];
+        String normalized = text.replaceAll("([a-z])([A-Z])", "$1 $2").toLowerCase(Locale.ROOT);
+
+        StringBuilder word = new StringBuilder();
+        char previousCjk = 0;
+        for (int i = 0; i <= normalized.length(); i++) {
+            char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+            if (c < 0x80 && Character.isLetterOrDigit(c)) {
+                word.append(c);
+                previousCjk = 0;
+                continue;
+            }
+            if (word.length() > 1) {
+                add(vector, word.toString(), 1.0f);
+            }
+            word.setLength(0);
+            if (Character.isLetter(c) && c >= 0x80) {
+                add(vector, String.valueOf(c), 0.5f);
+                if (previousCjk != 0) {
+                    add(vector, "" + previousCjk + c, 1.0f);
+                }
+                previousCjk = c;
+            } else {
+                previousCjk = 0;
+            }
+        }
+
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    private static void add(float[] vector, String feature, float weight) {
+        int hash = feature.hashCode();
+        int index = Math.floorMod(hash, DIMENSION);
+        // 用哈希的另一位决定符号，降低冲突带来的偏差
+        vector[index] += ((hash >>> 16) & 1) == 0 ? weight : -weight;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,100 @@
+package cn.iocoder.boot.mcp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.model.function.FunctionCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按提示选择工具
+ * 工具较多时只为每次对话附带最相关的前k个工具，相关度不足时回退为全部工具
+ *
+ * @author backend
+ */
+@Slf4j
+@Service
+public class ToolSelector {
+
+    private final List<ToolCallbackProvider> toolCallbackProviders;
+
+    private final ToolSelectionIndex index = new ToolSelectionIndex();
+
+    private volatile Map<String, FunctionCallback> catalog = Map.of();
+
+    private volatile long lastRefreshNanos;
+
+    @Value("${mcp.tool-selection.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${mcp.tool-selection.top-k:5}")
+    private int topK = 5;
+
+    @Value("${mcp.tool-selection.min-score:0.1}")
+    private double minScore = 0.1;
+
+    @Value("${mcp.tool-selection.refresh-interval:30s}")
+    private Duration refreshInterval = Duration.ofSeconds(30);
+
+    public ToolSelector(List<ToolCallbackProvider> toolCallbackProviders) {
+        this.toolCallbackProviders = toolCallbackProviders;
+    }
+
+    /**
+     * 为提示选择工具
+     *
+     * @param prompt 用户提示
+     * @return 本次对话附带的工具
+     */
+    public FunctionCallback[] select(String prompt) {
+        refreshIfStale();
+        Map<String, FunctionCallback> tools = catalog;
+        if (!enabled || tools.size() <= topK) {
+            return tools.values().toArray(new FunctionCallback[0]);
+        }
+
+        List<ToolSelectionIndex.ScoredTool> selected = index.search(prompt, topK);
+        if (selected.isEmpty() || selected.get(0).score() < minScore) {
+            log.debug("工具选择相关度不足，回退为全部{}个工具", tools.size());
+            return tools.values().toArray(new FunctionCallback[0]);
+        }
+
+        log.debug("为提示选择工具: {}", selected);
+        return selected.stream()
+                .map(scored -> tools.get(scored.name()))
+                .filter(callback -> callback != null)
+                .toArray(FunctionCallback[]::new);
+    }
+
+    /**
+     * 立即刷新工具目录，工具变更后调用
+     */
+    public synchronized void refresh() {
+        Map<String, FunctionCallback> tools = new LinkedHashMap<>();
+        for (ToolCallbackProvider provider : toolCallbackProviders) {
+            Arrays.stream(provider.getToolCallbacks())
+                    .forEach(callback -> tools.putIfAbsent(callback.getName(), callback));
+        }
+        Map<String, String> descriptions = new LinkedHashMap<>();
+        tools.forEach((name, callback) -> descriptions.put(name, callback.getDescription()));
+
+        int updated = index.refresh(descriptions);
+        catalog = tools;
+        lastRefreshNanos = System.nanoTime();
+        if (updated > 0) {
+            log.info("工具选择索引已更新，工具总数: {}，重新计算: {}", tools.size(), updated);
+        }
+    }
+
+    private void refreshIfStale() {
+        if (lastRefreshNanos == 0 || System.nanoTime() - lastRefreshNanos > refreshInterval.toNanos()) {
+            refresh();
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.config.TrafficRecordingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 流量录制器
+ * 将工具调用（参数、耗时、结果）与AgenticRag上游响应写入紧凑的gzip日志：
+ * 每条记录为 类型 + 变长整数（时间戳、耗时、状态） + 变长长度前缀的UTF-8字符串，
+ * 由后台线程异步写入，队列满或超出大小上限时丢弃，不阻塞调用线程；
+ * 所有字符串写入前按载荷日志的规则脱敏，文件名追加启动时间戳，重启不会覆盖之前的录制
+ *
+ * @author backend
+ */
+@Slf4j
+@Component
+public class TrafficRecorder {
+
+    /**
+     * 记录类型
+     */
+    public enum Type {
+        /**
+         * 工具调用：name为工具名，request为参数JSON，response为结果
+         */
+        TOOL_CALL,
+        /**
+         * 上游请求：name为HTTP方法，request为路径与查询串，response为响应体
+         */
+        UPSTREAM
+    }
+
+    /**
+     * 单条录制记录
+     *
+     * @param status 工具调用成功为200、失败为500；上游请求为HTTP状态码
+     */
+    public record Entry(Type type, long timestampMillis, long durationNanos, int status,
+                        String name, String request, String response) {
+    }
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final TrafficRecordingProperties properties;
+    private final PayloadLogger payloadLogger;
+    private final Path file;
+    private final BlockingQueue<Entry> queue;
+    private final Counter recorded;
+    private final Counter dropped;
+    private final Thread writer;
+
+    private volatile boolean enabled;
+    private long writtenBytes;
+
+    public TrafficRecorder(TrafficRecordingProperties properties, PayloadLogger payloadLogger, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.payloadLogger = payloadLogger;
+        this.file = timestamped(Path.of(properties.getFile()));
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        this.recorded = Counter.builder("mcp.recording.records")
+                .description("已写入录制文件的记录数")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("mcp.recording.dropped")
+                .description("因队列满或超出大小上限被丢弃的记录数")
+                .register(meterRegistry);
+        this.enabled = properties.isEnabled();
+        if (enabled) {
+            this.writer = new Thread(this::writeLoop, "mcp-traffic-recorder");
+            this.writer.setDaemon(true);
+            this.writer.start();
+            log.info("流量录制已开启: {}", file);
+        } else {
+            this.writer = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 本次启动实际写入的录制文件
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * 记录一次工具调用
+     */
+    public void recordToolCall(String tool, String arguments, String result, boolean success,
+                               long timestampMillis, long durationNanos) {
+        offer(new Entry(Type.TOOL_CALL, timestampMillis, durationNanos, success ? 200 : 500, tool,
+                redact(arguments), redact(result)));
+    }
+
+    /**
+     * 记录一次上游请求
+     */
+    public void recordUpstream(String method, String pathAndQuery, int status, String body,
+                               long timestampMillis, long durationNanos) {
+        offer(new Entry(Type.UPSTREAM, timestampMillis, durationNanos, status, method,
+                redact(pathAndQuery), redact(body)));
+    }
+
+    /**
+     * WebClient过滤器：录制上游响应。开启录制时响应体会先完整读入再交给下游
+     */
+    public ExchangeFilterFunction upstreamFilter() {
+        return (request, next) -> {
+            if (!enabled) {
+                return next.exchange(request);
+            }
+            long timestampMillis = System.currentTimeMillis();
+            long start = System.nanoTime();
+            String pathAndQuery = pathAndQuery(request.url());
+            return next.exchange(request)
+                    .flatMap(response -> response.bodyToMono(String.class)
+                            .defaultIfEmpty("")
+                            .map(body -> {
+                                recordUpstream(request.method().name(), pathAndQuery, response.statusCode().value(),
+                                        body, timestampMillis, System.nanoTime() - start);
+                                return response.mutate().body(body).build();
+                            }));
+        };
+    }
+
+    /**
+     * 读取录制文件，文件末尾不完整（如进程异常退出）时返回已完整写入的记录
+     */
+    public static List<Entry> read(Path file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (InputStream in = new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                }
+                entries.add(new Entry(Type.values()[type], readVarLong(in), readVarLong(in), (int) readVarLong(in),
+                        readString(in), readString(in), readString(in)));
+            }
+        } catch (EOFException e) {
+            log.warn("录制文件末尾不完整，已读取{}条记录: {}", entries.size(), file);
+        }
+        return entries;
+    }
+
+    /**
+     * 编码单条记录
+     */
+    static byte[] encode(Entry entry) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(entry.type().ordinal());
+        writeVarLong(out, entry.timestampMillis());
+        writeVarLong(out, entry.durationNanos());
+        writeVarLong(out, entry.status());
+        writeString(out, entry.name());
+        writeString(out, entry.request());
+        writeString(out, entry.response());
+        return out.toByteArray();
+    }
+
+    /**
+     * 在配置的文件名与扩展名之间插入时间戳，如 mcp-traffic.rec.gz -> mcp-traffic-20240101-120000-000.rec.gz
+     */
+    static Path timestamped(Path configured) {
+        String name = configured.getFileName().toString();
+        int dot = name.indexOf('.');
+        String timestamp = LocalDateTime.now().format(FILE_TIMESTAMP);
+        String timestampedName = dot > 0
+                ? name.substring(0, dot) + "-" + timestamp + name.substring(dot)
+                : name + "-" + timestamp;
+        return configured.resolveSibling(timestampedName);
+    }
+
+    static String pathAndQuery(URI uri) {
+        return uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery();
+    }
+
+    @PreDestroy
+    public void close() {
+        enabled = false;
+        if (writer != null) {
+            writer.interrupt();
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private String redact(String value) {
+        return value == null ? null : payloadLogger.redact(value);
+    }
+
+    private void offer(Entry entry) {
+        if (!enabled) {
+            return;
+        }
+        if (queue.offer(entry)) {
+            return;
+        }
+        dropped.increment();
+    }
+
+    private void writeLoop() {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            // syncFlush使每次flush后的内容都可被完整解压，进程异常退出时只丢失未flush的记录
+            OutputStream fileOut = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(fileOut), 64 * 1024, true)) {
+                boolean interrupted = false;
+                while (!interrupted || !queue.isEmpty()) {
+                    Entry entry;
+                    try {
+                        entry = interrupted ? queue.poll() : queue.take();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                        continue;
+                    }
+                    if (entry == null) {
+                        break;
+                    }
+                    write(out, entry);
+                    if (queue.isEmpty()) {
+                        out.flush();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            enabled = false;
+            log.error("写入录制文件失败，停止录制: {}", file, e);
+        }
+        log.info("流量录制已结束: {}，共{}字节（未压缩）", file, writtenBytes);
+    }
+
+    private void write(OutputStream out, Entry entry) throws IOException {
+        byte[] encoded = encode(entry);
+        if (writtenBytes + encoded.length > properties.getMaxBytes()) {
+            if (enabled) {
+                enabled = false;
+                log.warn("录制文件达到大小上限{}字节，停止录制", properties.getMaxBytes());
+            }
+            dropped.increment();
+            return;
+        }
+        out.write(encoded);
+        writtenBytes += encoded.length;
+        recorded.increment();
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * 长度加1写入，0表示null
+     */
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        int length = (int) readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = in.readNBytes(length - 1);
+        if (bytes.length != length - 1) {
+            throw new EOFException();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,162 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.config.AdmissionProperties;
+import cn.iocoder.boot.mcp.service.ToolInvocationContext.Priority;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 准入调度器测试类
+ * 并发上限为1，先由一个未完成的任务占住许可，其余任务排队后按出队顺序执行
+ *
+ * @author backend
+ */
+class AdmissionSchedulerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AdmissionProperties properties;
+    private AdmissionScheduler scheduler;
+    private List<String> executed;
+    private Sinks.One<String> blocker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new AdmissionProperties();
+        properties.setMaxConcurrent(1);
+        properties.setQueueCapacity(10);
+        scheduler = new AdmissionScheduler(properties, meterRegistry);
+        executed = new CopyOnWriteArrayList<>();
+        blocker = Sinks.one();
+    }
+
+    @Test
+    void admit_交互式严格优先于批量() {
+        occupy();
+        enqueue(Priority.BATCH, "t1", "b1");
+        enqueue(Priority.BATCH, "t1", "b2");
+        enqueue(Priority.INTERACTIVE, "t1", "i1");
+        enqueue(Priority.INTERACTIVE, "t2", "i2");
+
+        assertTrue(executed.isEmpty(), "许可被占用时不应执行排队任务");
+        releaseBlocker();
+
+        assertEquals(List.of("i1", "i2", "b1", "b2"), executed);
+    }
+
+    @Test
+    void admit_同一优先级内按租户权重轮转() {
+        properties.setTenantWeights(Map.of("a", 2));
+        occupy();
+        for (int i = 1; i <= 4; i++) {
+            enqueue(Priority.BATCH, "a", "a" + i);
+        }
+        for (int i = 1; i <= 3; i++) {
+            enqueue(Priority.BATCH, "b", "b" + i);
+        }
+
+        releaseBlocker();
+
+        // 权重2的租户每轮连续获得2次执行
+        assertEquals(List.of("a1", "a2", "b1", "a3", "a4", "b2", "b3"), executed);
+    }
+
+    @Test
+    void admit_队列已满时拒绝且不影响其他优先级() {
+        properties.setQueueCapacity(2);
+        occupy();
+        enqueue(Priority.BATCH, "t1", "b1");
+        enqueue(Priority.BATCH, "t1", "b2");
+
+        AtomicReference<Throwable> rejected = new AtomicReference<>();
+        scheduler.admit(Priority.BATCH, "t1", task("b3")).subscribe(value -> {
+        }, rejected::set);
+        enqueue(Priority.INTERACTIVE, "t1", "i1");
+
+        assertInstanceOf(RejectedExecutionException.class, rejected.get(), "超出队列容量应立即拒绝");
+        assertEquals(1.0, meterRegistry.counter("mcp.admission.rejected", "priority", "batch").count());
+        assertEquals(0.0, meterRegistry.counter("mcp.admission.rejected", "priority", "interactive").count());
+
+        releaseBlocker();
+        assertEquals(List.of("i1", "b1", "b2"), executed);
+    }
+
+    @Test
+    void admit_取消排队中的任务后不再执行() {
+        occupy();
+        Disposable cancelled = scheduler.admit(Priority.BATCH, "t1", task("b1")).subscribe();
+        enqueue(Priority.BATCH, "t1", "b2");
+        assertEquals(2.0, gauge("mcp.admission.queue.size", "batch"));
+
+        cancelled.dispose();
+        assertEquals(1.0, gauge("mcp.admission.queue.size", "batch"), "取消后应移出队列");
+
+        releaseBlocker();
+        assertEquals(List.of("b2"), executed);
+        assertEquals(0.0, meterRegistry.get("mcp.admission.in.flight").gauge().value());
+    }
+
+    @Test
+    void metrics_排队数与在途数及排队等待时间() throws InterruptedException {
+        occupy();
+        enqueue(Priority.BATCH, "t1", "b1");
+        enqueue(Priority.BATCH, "t2", "b2");
+        enqueue(Priority.INTERACTIVE, "t1", "i1");
+
+        assertEquals(1.0, meterRegistry.get("mcp.admission.in.flight").gauge().value());
+        assertEquals(2.0, gauge("mcp.admission.queue.size", "batch"));
+        assertEquals(1.0, gauge("mcp.admission.queue.size", "interactive"));
+
+        Thread.sleep(100);
+        releaseBlocker();
+
+        assertEquals(0.0, meterRegistry.get("mcp.admission.in.flight").gauge().value(), "全部完成后应归还许可");
+        assertEquals(0.0, gauge("mcp.admission.queue.size", "batch"));
+        Timer batchWait = meterRegistry.get("mcp.admission.queue.wait").tag("priority", "batch").timer();
+        assertEquals(2, batchWait.count());
+        assertTrue(batchWait.max(TimeUnit.MILLISECONDS) >= 100, "排队等待时间应包含许可被占用的时长");
+        // 直接获得许可的任务也记录一次等待时间
+        Timer interactiveWait = meterRegistry.get("mcp.admission.queue.wait").tag("priority", "interactive").timer();
+        assertEquals(2, interactiveWait.count());
+    }
+
+    /**
+     * 以交互式优先级占住唯一的执行许可，直到调用releaseBlocker
+     */
+    private void occupy() {
+        scheduler.admit(Priority.INTERACTIVE, "blocker", blocker.asMono()).subscribe();
+    }
+
+    private void releaseBlocker() {
+        blocker.tryEmitValue("done").orThrow();
+    }
+
+    private void enqueue(Priority priority, String tenant, String label) {
+        scheduler.admit(priority, tenant, task(label)).subscribe();
+    }
+
+    private Mono<String> task(String label) {
+        return Mono.fromCallable(() -> {
+            executed.add(label);
+            return label;
+        });
+    }
+
+    private double gauge(String name, String priority) {
+        return meterRegistry.get(name).tag("priority", priority).gauge().value();
+    }
+}
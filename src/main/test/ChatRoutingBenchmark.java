@@ -0,0 +1,276 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.config.ChatRoutingConfig;
+import cn.iocoder.boot.mcp.config.ChatRoutingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 模型路由基准
+ * 使用注入延迟的假模型，比较主模型中途退化时直连主模型与经过路由的延迟分位数
+ *
+ * @author backend
+ */
+class ChatRoutingBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int CALLS = 400;
+    private static final Duration SLO = Duration.ofMillis(100);
+
+    @Test
+    void benchmark_主模型退化时按SLO降级() throws Exception {
+        FakeModel primaryOnly = new FakeModel("fast", 20);
+        List<Long> direct = run(primaryOnly, primaryOnly);
+
+        FakeModel primary = new FakeModel("fast", 20);
+        FakeModel secondary = new FakeModel("large", 40);
+        RoutingChatModel router = router(primary, secondary);
+        List<Long> routed = run(router, primary);
+
+        long directP95 = percentile(direct, 0.95);
+        long routedP95 = percentile(routed, 0.95);
+        System.out.printf("直连主模型: p50=%dms p95=%dms p99=%dms%n",
+                percentile(direct, 0.5), directP95, percentile(direct, 0.99));
+        System.out.printf("模型路由:   p50=%dms p95=%dms p99=%dms，主模型%d次，降级模型%d次%n",
+                percentile(routed, 0.5), routedP95, percentile(routed, 0.99), primary.calls.get(), secondary.calls.get());
+
+        assertTrue(secondary.calls.get() > 0, "主模型超出SLO后应有请求降级");
+        assertTrue(routedP95 < directP95, "经过路由的p95延迟应低于直连退化的主模型");
+    }
+
+    @Test
+    void choose_超长提示走大上下文模型() {
+        RoutingChatModel router = router(new FakeModel("fast", 0), new FakeModel("large", 0));
+
+        assertEquals("fast", router.choose(new Prompt("你好")).route().name());
+        assertEquals("large", router.choose(new Prompt("长".repeat(5000))).route().name());
+    }
+
+    @Test
+    void call_失败时降级重试() {
+        FakeModel primary = new FakeModel("fast", 0);
+        primary.failing = true;
+        FakeModel secondary = new FakeModel("large", 0);
+        RoutingChatModel router = router(primary, secondary);
+
+        ChatResponse response = router.call(new Prompt("你好"));
+
+        assertEquals("large", response.getResult().getOutput().getText());
+    }
+
+    @Test
+    void choose_样本过期后保留超出SLO的判定() throws Exception {
+        FakeModel primary = new FakeModel("fast", 120);
+        RoutingChatModel router = router(primary, new FakeModel("large", 0),
+                properties -> properties.setProbeInterval(Duration.ofMinutes(1)));
+        for (int i = 0; i < 5; i++) {
+            router.call(new Prompt("你好"));
+        }
+        assertEquals("large", router.choose(new Prompt("你好")).route().name());
+
+        // 窗口内样本全部过期，没有新样本前仍判定为超出SLO
+        Thread.sleep(1100);
+        assertEquals("large", router.choose(new Prompt("你好")).route().name());
+        assertEquals(5, primary.calls.get());
+    }
+
+    @Test
+    void choose_超出SLO时按间隔放行探测请求() throws Exception {
+        FakeModel primary = new FakeModel("fast", 120);
+        RoutingChatModel router = router(primary, new FakeModel("large", 0),
+                properties -> properties.setProbeInterval(Duration.ofMillis(300)));
+        for (int i = 0; i < 5; i++) {
+            router.call(new Prompt("你好"));
+        }
+        assertEquals("large", router.choose(new Prompt("你好")).route().name(), "刚超出SLO时不应立即探测");
+
+        Thread.sleep(350);
+        RoutingChatModel.Decision probe = router.choose(new Prompt("你好"));
+        assertEquals("fast", probe.route().name());
+        assertEquals("probe", probe.reason());
+        assertEquals("large", router.choose(new Prompt("你好")).route().name(), "每个间隔只放行一个探测请求");
+    }
+
+    @Test
+    void call_工具执行失败不降级() {
+        FakeModel primary = new FakeModel("fast", 0);
+        primary.failure = new ToolExecutionException(ToolDefinition.builder()
+                .name("queryWithAgenticRag")
+                .description("查询")
+                .inputSchema("{}")
+                .build(), new IllegalStateException("AgenticRag不可用"));
+        FakeModel secondary = new FakeModel("large", 0);
+        RoutingChatModel router = router(primary, secondary);
+
+        assertThrows(ToolExecutionException.class, () -> router.call(new Prompt("你好")));
+        assertEquals(0, secondary.calls.get(), "工具失败不应在降级模型上重放整个提示");
+    }
+
+    @Test
+    void call_模型请求关闭内部工具执行() {
+        FakeModel primary = new FakeModel("fast", 0);
+        RoutingChatModel router = router(primary, new FakeModel("large", 0));
+
+        router.call(new Prompt("你好", OpenAiChatOptions.builder().build()));
+
+        assertInstanceOf(ToolCallingChatOptions.class, primary.lastPrompt.getOptions());
+        assertFalse(ToolCallingChatOptions.isInternalToolExecutionEnabled(primary.lastPrompt.getOptions()),
+                "工具由路由执行，模型请求的耗时只包含模型本身");
+    }
+
+    @Test
+    void config_运行时按开关决定是否路由() {
+        OpenAiChatModel openAiChatModel = new OpenAiChatModel(new OpenAiApi("http://localhost:1", "test-key"));
+        ChatRoutingProperties properties = new ChatRoutingProperties();
+        ChatRoutingProperties.Route route = new ChatRoutingProperties.Route();
+        route.setName("fast");
+        route.setModel("fast-model");
+        properties.getRoutes().add(route);
+        ObjectProvider<ToolCallingManager> noManager = new StaticListableBeanFactory()
+                .getBeanProvider(ToolCallingManager.class);
+        ChatRoutingConfig config = new ChatRoutingConfig();
+
+        ChatModel disabled = config.routingChatModel(openAiChatModel, properties, new SimpleMeterRegistry(),
+                noManager, "test-key");
+        assertSame(openAiChatModel, disabled, "未启用路由时首选模型应为OpenAiChatModel");
+
+        properties.setEnabled(true);
+        ChatModel enabled = config.routingChatModel(openAiChatModel, properties, new SimpleMeterRegistry(),
+                noManager, "test-key");
+        assertInstanceOf(RoutingChatModel.class, enabled);
+    }
+
+    private static RoutingChatModel router(FakeModel primary, FakeModel secondary) {
+        return router(primary, secondary, properties -> {
+        });
+    }
+
+    private static RoutingChatModel router(FakeModel primary, FakeModel secondary,
+                                           Consumer<ChatRoutingProperties> customizer) {
+        ChatRoutingProperties properties = new ChatRoutingProperties();
+        properties.setWindow(Duration.ofSeconds(1));
+        properties.setMinSamples(5);
+        properties.setPercentile(0.95);
+        customizer.accept(properties);
+
+        ChatRoutingProperties.Route fast = new ChatRoutingProperties.Route();
+        fast.setName("fast");
+        fast.setModel("fast-model");
+        fast.setMaxPromptTokens(4000);
+        fast.setSlo(SLO);
+        fast.setFallback("large");
+        ChatRoutingProperties.Route large = new ChatRoutingProperties.Route();
+        large.setName("large");
+        large.setModel("large-model");
+        large.setSlo(SLO.multipliedBy(2));
+        properties.setRoutes(List.of(fast, large));
+
+        Map<String, ChatModel> targets = new LinkedHashMap<>();
+        targets.put("fast", primary);
+        targets.put("large", secondary);
+        return new RoutingChatModel(properties, targets, new SimpleMeterRegistry());
+    }
+
+    /**
+     * 并发调用，完成一半后主模型延迟退化到SLO的两倍
+     */
+    private static List<Long> run(ChatModel model, FakeModel degrading) throws Exception {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>(CALLS));
+        AtomicInteger issued = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    int n;
+                    while ((n = issued.getAndIncrement()) < CALLS) {
+                        if (n == CALLS / 2) {
+                            degrading.latencyMillis.set(SLO.multipliedBy(2).toMillis());
+                        }
+                        long start = System.nanoTime();
+                        model.call(new Prompt("请使用AgenticRag工具查询: 第" + n + "个问题"));
+                        latencies.add(Duration.ofNanos(System.nanoTime() - start).toMillis());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return latencies;
+    }
+
+    private static long percentile(List<Long> values, double percentile) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.min(sorted.size() - 1, Math.max(0, index)));
+    }
+
+    /**
+     * 注入延迟的假模型，回复内容为模型名称
+     */
+    private static final class FakeModel implements ChatModel {
+
+        private final String name;
+        private final AtomicLong latencyMillis;
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile boolean failing;
+        private volatile RuntimeException failure;
+        private volatile Prompt lastPrompt;
+
+        FakeModel(String name, long latencyMillis) {
+            this.name = name;
+            this.latencyMillis = new AtomicLong(latencyMillis);
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            calls.incrementAndGet();
+            lastPrompt = prompt;
+            if (failing) {
+                throw new IllegalStateException(name + " 不可用");
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            try {
+                Thread.sleep(latencyMillis.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(name))));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.config.ChatMemoryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 紧凑会话记忆测试类
+ *
+ * @author backend
+ */
+class CompactChatMemoryTest {
+
+    private ChatMemoryProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ChatMemoryProperties();
+        properties.setMaxTokensPerSession(1_000_000);
+    }
+
+    @Test
+    void add_变长长度编码往返一致() {
+        CompactChatMemory memory = newMemory();
+        // 覆盖1、2、3字节长度前缀的边界，以及多字节UTF-8字符
+        List<Message> messages = List.of(
+                new UserMessage("a".repeat(127)),
+                new AssistantMessage("b".repeat(128)),
+                new UserMessage("c".repeat(16_383)),
+                new AssistantMessage("d".repeat(16_384)),
+                new SystemMessage("中文消息".repeat(10_000)));
+        memory.add("s1", messages);
+
+        List<Message> restored = memory.get("s1", Integer.MAX_VALUE);
+
+        assertEquals(messages.size(), restored.size());
+        long expectedBytes = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            assertEquals(messages.get(i).getMessageType(), restored.get(i).getMessageType());
+            assertEquals(messages.get(i).getText(), restored.get(i).getText());
+            expectedBytes += encodedSize(messages.get(i).getText());
+        }
+        assertEquals(expectedBytes, memory.totalBytes(), "编码应为 类型 + 变长长度 + UTF-8文本");
+    }
+
+    @Test
+    void add_追加消息并按lastN读取() {
+        CompactChatMemory memory = newMemory();
+        memory.add("s1", List.of(new UserMessage("问题1"), new AssistantMessage("回答1")));
+        memory.add("s1", List.of(new UserMessage("问题2"), new AssistantMessage(""), new AssistantMessage("回答2")));
+
+        List<Message> lastTwo = memory.get("s1", 2);
+
+        assertEquals(List.of("问题2", "回答2"), lastTwo.stream().map(Message::getText).toList(), "空消息不应保存");
+        assertEquals(4, memory.get("s1", 100).size());
+        assertTrue(memory.get("unknown", 10).isEmpty());
+    }
+
+    @Test
+    void trim_超出token窗口时压缩较早消息为摘要() {
+        properties.setMaxTokensPerSession(60);
+        properties.setSummaryCharsPerMessage(4);
+        CompactChatMemory memory = newMemory();
+
+        // 每条10个中文字符，约10个token
+        for (int i = 0; i < 10; i++) {
+            memory.add("s1", List.of(new UserMessage(i + "号问题的详细内容说明"), new AssistantMessage(i + "号回答的详细内容说明")));
+        }
+
+        List<Message> messages = memory.get("s1", Integer.MAX_VALUE);
+        Message summary = messages.get(0);
+        assertEquals(MessageType.SYSTEM, summary.getMessageType());
+        assertTrue(summary.getText().startsWith("历史对话摘要:\n"));
+        assertTrue(summary.getText().contains("用户: "), summary.getText());
+        assertTrue(summary.getText().contains("..."), "超长消息在摘要中应被截断");
+        assertEquals(1, messages.stream().filter(message -> message.getText().startsWith("历史对话摘要:\n")).count(),
+                "多次压缩应合并为一条摘要");
+        assertEquals("9号回答的详细内容说明", messages.get(messages.size() - 1).getText(), "最近的消息应原样保留");
+        assertTrue(estimateTokens(messages) <= 60, "压缩后应回到token窗口内");
+    }
+
+    @Test
+    void evict_超出会话数时淘汰最久未访问的会话() {
+        properties.setMaxSessions(2);
+        CompactChatMemory memory = newMemory();
+        memory.add("s1", List.of(new UserMessage("1")));
+        memory.add("s2", List.of(new UserMessage("2")));
+        memory.get("s1", 1);
+
+        memory.add("s3", List.of(new UserMessage("3")));
+
+        assertEquals(2, memory.sessionCount());
+        assertTrue(memory.get("s2", 1).isEmpty(), "最久未访问的s2应被淘汰");
+        assertEquals("1", memory.get("s1", 1).get(0).getText());
+        assertEquals("3", memory.get("s3", 1).get(0).getText());
+    }
+
+    @Test
+    void evict_超出总字节数时淘汰且字节计数准确() {
+        String text = "x".repeat(38);
+        properties.setMaxTotalBytes(100);
+        CompactChatMemory memory = newMemory();
+
+        memory.add("s1", List.of(new UserMessage(text)));
+        memory.add("s2", List.of(new UserMessage(text)));
+        assertEquals(80, memory.totalBytes());
+        memory.add("s3", List.of(new UserMessage(text)));
+
+        assertEquals(2, memory.sessionCount());
+        assertEquals(80, memory.totalBytes());
+        assertTrue(memory.get("s1", 1).isEmpty());
+
+        memory.clear("s2");
+        assertEquals(40, memory.totalBytes());
+        assertEquals(40.0 * 1000, memory.bytesPerThousandSessions());
+    }
+
+    @Test
+    void offHeap_存放在堆外内存且内容一致() {
+        properties.setOffHeap(true);
+        CompactChatMemory memory = newMemory();
+        List<Message> messages = List.of(new UserMessage("堆外问题"), new AssistantMessage("off-heap answer"));
+
+        memory.add("s1", messages);
+        memory.add("s1", List.of(new UserMessage("追加")));
+
+        @SuppressWarnings("unchecked")
+        Map<String, ByteBuffer> sessions = (Map<String, ByteBuffer>) ReflectionTestUtils.getField(memory, "sessions");
+        assertTrue(sessions.get("s1").isDirect(), "开启offHeap时应使用直接内存");
+        assertEquals(List.of("堆外问题", "off-heap answer", "追加"),
+                memory.get("s1", 10).stream().map(Message::getText).toList());
+        assertEquals(encodedSize("堆外问题") + encodedSize("off-heap answer") + encodedSize("追加"), memory.totalBytes());
+    }
+
+    private CompactChatMemory newMemory() {
+        return new CompactChatMemory(properties, new SimpleMeterRegistry());
+    }
+
+    private static long encodedSize(String text) {
+        int length = text.getBytes(StandardCharsets.UTF_8).length;
+        int prefix = 1;
+        while ((length >>>= 7) != 0) {
+            prefix++;
+        }
+        return 1 + prefix + text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static int estimateTokens(List<Message> messages) {
+        List<String> texts = new ArrayList<>();
+        messages.forEach(message -> texts.add(message.getText()));
+        int tokens = 0;
+        for (String text : texts) {
+            int ascii = 0;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) < 0x80) {
+                    ascii++;
+                } else {
+                    tokens++;
+                }
+            }
+            tokens += (ascii + 3) / 4;
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,193 @@
+package cn.iocoder.boot.mcp.config;
+
+import cn.iocoder.boot.mcp.McpApplication;
+import cn.iocoder.boot.mcp.service.PayloadLogger;
+import cn.iocoder.boot.mcp.service.TrafficRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 传输压缩基准
+ * 对典型大小的RAG结果测量gzip/deflate压缩后的字节数与压缩CPU耗时，验证WebClient协商与透明解压，
+ * 以及服务端对MCP SSE流的压缩
+ *
+ * @author backend
+ */
+class CompressionBenchmark {
+
+    private static final int[] PAYLOAD_SIZES = {1024, 16 * 1024, 256 * 1024};
+    private static final int ROUNDS = 200;
+
+    @Test
+    void benchmark_不同大小RAG结果的压缩率与CPU开销() throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        System.out.printf("%-8s %-10s %10s %10s %8s %12s%n", "原始", "算法", "原始字节", "压缩字节", "压缩率", "CPU/次");
+        for (int size : PAYLOAD_SIZES) {
+            byte[] payload = ragResult(size).getBytes(StandardCharsets.UTF_8);
+            for (String algorithm : new String[]{"gzip", "deflate"}) {
+                for (int level : new int[]{Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION}) {
+                    int compressed = 0;
+                    for (int i = 0; i < ROUNDS; i++) {
+                        compressed = compress(algorithm, level, payload).length;
+                    }
+                    long cpuStart = threads.getCurrentThreadCpuTime();
+                    for (int i = 0; i < ROUNDS; i++) {
+                        compressed = compress(algorithm, level, payload).length;
+                    }
+                    long cpuNanos = (threads.getCurrentThreadCpuTime() - cpuStart) / ROUNDS;
+                    assertTrue(compressed < payload.length, "RAG结果应可压缩");
+                    System.out.printf("%-8s %-10s %10d %10d %7.1f%% %10.1fus%n", size / 1024 + "KB",
+                            algorithm + (level == Deflater.BEST_SPEED ? "-1" : "-6"),
+                            payload.length, compressed, compressed * 100.0 / payload.length, cpuNanos / 1e3);
+                }
+            }
+        }
+    }
+
+    @Test
+    void webClient_协商gzip并透明解压() throws IOException {
+        String body = ragResult(16 * 1024);
+        byte[] gzipped = compress("gzip", Deflater.DEFAULT_COMPRESSION, body.getBytes(StandardCharsets.UTF_8));
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse()
+                    .setBody(new Buffer().write(gzipped))
+                    .addHeader("Content-Type", "application/json")
+                    .addHeader("Content-Encoding", "gzip"));
+            server.start();
+
+            WebClient webClient = new McpConfig().webClient(new TrafficRecorder(new TrafficRecordingProperties(),
+                    new PayloadLogger(new PayloadLoggingProperties()), new SimpleMeterRegistry()), true);
+            String result = webClient.get()
+                    .uri(server.url("/query").toString())
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .block(Duration.ofSeconds(10));
+
+            RecordedRequest request = server.takeRequest();
+            String acceptEncoding = request.getHeader("Accept-Encoding");
+            assertNotNull(acceptEncoding, "应携带Accept-Encoding");
+            assertTrue(acceptEncoding.contains("gzip"));
+            assertEquals(body, result, "响应应被透明解压");
+            System.out.printf("响应线上字节 %d，解压后 %d%n", gzipped.length, body.getBytes(StandardCharsets.UTF_8).length);
+        }
+    }
+
+    @Test
+    void server_MCP_SSE流按gzip压缩() throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(McpApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.ai.mcp.client.enabled=false",
+                        "spring.jmx.enabled=false")
+                .run();
+        HttpClient client = HttpClient.newHttpClient();
+        try {
+            int port = ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+            // JDK HttpClient不会自动解压，可以看到线上的原始字节
+            HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/sse"))
+                            .header("Accept", "text/event-stream")
+                            .header("Accept-Encoding", "gzip")
+                            .build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                assertEquals(200, response.statusCode());
+                assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/event-stream"));
+                assertTrue(response.headers().firstValue("Content-Length").isEmpty(), "SSE应为分块传输");
+                assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null),
+                        "没有Content-Length时不受min-response-size限制，SSE应被压缩");
+
+                // endpoint事件只有几十字节，也以gzip格式发出
+                byte[] magic = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return body.readNBytes(2);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }).get(10, TimeUnit.SECONDS);
+                assertArrayEquals(new byte[]{(byte) 0x1f, (byte) 0x8b}, magic, "应为gzip数据");
+            }
+        } finally {
+            client.close();
+            context.close();
+        }
+    }
+
+    private static byte[] compress(String algorithm, int level, byte[] payload) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 4);
+        if ("gzip".equals(algorithm)) {
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+                {
+                    def.setLevel(level);
+                }
+            }) {
+                gzip.write(payload);
+            }
+        } else {
+            Deflater deflater = new Deflater(level);
+            try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, deflater)) {
+                deflate.write(payload);
+            } finally {
+                deflater.end();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 生成接近AgenticRag返回结构的JSON：若干检索片段，含来源、得分与中英文混合正文
+     */
+    private static String ragResult(int approximateBytes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String[] words = {"检索", "增强", "生成", "知识库", "向量", "召回", "重排序", "文档", "片段", "模型",
+                "context", "embedding", "retrieval", "score", "chunk", "query"};
+        StringBuilder json = new StringBuilder("{\"status\":\"success\",\"data\":{\"answer\":\"");
+        for (int i = 0; i < 40; i++) {
+            json.append(words[random.nextInt(words.length)]);
+        }
+        json.append("\",\"sources\":[");
+        int index = 0;
+        while (json.length() * 2 < approximateBytes || index == 0) {
+            if (index > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"doc-").append(random.nextInt(100_000))
+                    .append("\",\"score\":").append(String.format("%.4f", random.nextDouble()))
+                    .append(",\"source\":\"https://kb.example.com/articles/").append(random.nextInt(10_000))
+                    .append("\",\"content\":\"");
+            for (int i = 0; i < 60; i++) {
+                json.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            json.append("\"}");
+            index++;
+        }
+        return json.append("]}}").toString();
+    }
+}
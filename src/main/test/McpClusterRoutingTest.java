@@ -0,0 +1,138 @@
+package cn.iocoder.boot.mcp.config;
+
+import cn.iocoder.boot.mcp.McpApplication;
+import cn.iocoder.boot.mcp.service.InMemorySessionRoutingBackplane;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MCP集群路由测试类
+ * 在同一JVM中启动两个实例，SSE连接建立在节点A，消息请求发往节点B，验证消息被转发到节点A处理
+ *
+ * @author backend
+ */
+class McpClusterRoutingTest {
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    @Test
+    void testMessage_跨节点转发到会话所在节点() {
+        WebClient clientA = WebClient.create("http://localhost:" + port(nodeA));
+        WebClient clientB = WebClient.create("http://localhost:" + port(nodeB));
+
+        Sinks.Many<ServerSentEvent<String>> events = Sinks.many().replay().all();
+        Flux<ServerSentEvent<String>> sse = clientA.get()
+                .uri("/sse")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {
+                });
+        var subscription = sse.subscribe(events::tryEmitNext);
+
+        try {
+            // 节点A下发的消息端点，包含会话ID
+            String endpoint = events.asFlux()
+                    .filter(event -> "endpoint".equals(event.event()))
+                    .map(ServerSentEvent::data)
+                    .blockFirst(Duration.ofSeconds(10));
+            assertNotNull(endpoint, "应收到endpoint事件");
+
+            // 消息请求发往节点B
+            String initialize = """
+                    {"jsonrpc":"2.0","id":1,"method":"initialize","params":{
+                      "protocolVersion":"2024-11-05","capabilities":{},
+                      "clientInfo":{"name":"cluster-test","version":"1.0.0"}}}
+                    """;
+            Integer status = clientB.post()
+                    .uri(endpoint)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(initialize)
+                    .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                    .block(Duration.ofSeconds(10));
+            assertEquals(200, status, "节点B应将消息转发到节点A并返回成功");
+
+            // 初始化响应应出现在节点A的SSE流上
+            String message = events.asFlux()
+                    .filter(event -> "message".equals(event.event()))
+                    .map(ServerSentEvent::data)
+                    .blockFirst(Duration.ofSeconds(10));
+            assertNotNull(message, "节点A的SSE流应收到响应");
+            assertTrue(message.contains("\"id\":1"), "响应应对应初始化请求");
+            assertTrue(message.contains("agenticrag-mcp-server"), "响应应包含服务器信息");
+        } finally {
+            subscription.dispose();
+        }
+    }
+
+    @Test
+    void testDisabled_运行时关闭集群模式时不登记节点() {
+        ConfigurableApplicationContext nodeC = startNode("node-c", false);
+        try {
+            WebClient clientC = WebClient.create("http://localhost:" + port(nodeC));
+            String nodeHeader = clientC.get()
+                    .uri("/sse")
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .exchangeToMono(response -> Mono.justOrEmpty(
+                            response.headers().asHttpHeaders().getFirst(McpSessionRoutingFilter.NODE_HEADER)))
+                    .block(Duration.ofSeconds(10));
+
+            // 过滤器始终注册，由运行时开关决定是否生效
+            assertNotNull(nodeC.getBean(McpSessionRoutingFilter.class));
+            assertNull(nodeHeader, "未启用集群模式时不应返回节点标识");
+            assertTrue(InMemorySessionRoutingBackplane.shared().nodeUrl("node-c").isEmpty(), "未启用集群模式时不应登记节点");
+        } finally {
+            nodeC.close();
+        }
+    }
+
+    private ConfigurableApplicationContext startNode(String nodeId) {
+        return startNode(nodeId, true);
+    }
+
+    private ConfigurableApplicationContext startNode(String nodeId, boolean clusterEnabled) {
+        return new SpringApplicationBuilder(McpApplication.class)
+                .properties(
+                        "server.port=0",
+                        "mcp.cluster.enabled=" + clusterEnabled,
+                        "mcp.cluster.node-id=" + nodeId,
+                        "spring.ai.mcp.client.enabled=false",
+                        "spring.jmx.enabled=false")
+                .run();
+    }
+
+    private int port(ConfigurableApplicationContext context) {
+        return ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+    }
+}
@@ -0,0 +1,102 @@
+package cn.iocoder.boot.mcp.config;
+
+import cn.iocoder.boot.mcp.service.McpFlightEvents;
+import cn.iocoder.boot.mcp.service.ToolInvocationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工具调用JFR事件测试
+ *
+ * @author backend
+ */
+class McpFlightEventsTest {
+
+    public static class EchoTools {
+
+        @Tool(description = "回显查询内容")
+        public String echo(String query) {
+            return query;
+        }
+    }
+
+    @Test
+    void toolInvocation_录制时提交事件(@TempDir Path dir) throws Exception {
+        ToolCallback callback = PrecompiledToolCallbackProvider.of(new ObjectMapper(), new EchoTools()).getToolCallbacks()[0];
+        ToolInvocationContext context = ToolInvocationContext.of(ToolInvocationContext.Priority.BATCH, "tenant-a");
+
+        Path file = dir.resolve("tool.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(McpFlightEvents.ToolInvocation.class);
+            recording.start();
+            ToolInvocationContext.callWith(context, () -> callback.call("{\"query\":\"你好\"}"));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("cn.iocoder.mcp.ToolInvocation"))
+                .toList();
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals("echo", event.getString("tool"));
+        assertEquals("tenant-a", event.getString("tenant"));
+        assertEquals("BATCH", event.getString("priority"));
+        assertTrue(event.getBoolean("success"));
+    }
+
+    @Test
+    void toolInvocation_按注入的判定记录失败(@TempDir Path dir) throws Exception {
+        ToolCallback callback = PrecompiledToolCallbackProvider.of(new ObjectMapper(), null, "失败"::equals,
+                new EchoTools()).getToolCallbacks()[0];
+
+        Path file = dir.resolve("tool.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(McpFlightEvents.ToolInvocation.class);
+            recording.start();
+            callback.call("{\"query\":\"失败\"}");
+            callback.call("{\"query\":\"你好\"}");
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<Boolean> success = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("cn.iocoder.mcp.ToolInvocation"))
+                .map(event -> event.getBoolean("success"))
+                .toList();
+        assertEquals(List.of(false, true), success);
+    }
+
+    @Test
+    void endpoint_只接受预设配置名称(@TempDir Path dir) throws Exception {
+        Path jfc = dir.resolve("custom.jfc");
+        Files.writeString(jfc, "<configuration version=\"2.0\"/>");
+        FlightRecorderEndpoint endpoint = new FlightRecorderEndpoint();
+        ReflectionTestUtils.setField(endpoint, "defaultSettings", "profile");
+        ReflectionTestUtils.setField(endpoint, "defaultMaxAge", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(endpoint, "dumpDir", dir.toString());
+        try {
+            assertThrows(IllegalArgumentException.class, () -> endpoint.control("start", jfc.toString(), null));
+            assertEquals("NONE", endpoint.status().get("state"), "拒绝后不应开始录制");
+
+            endpoint.control("start", "default", null);
+            assertEquals("RUNNING", endpoint.status().get("state"));
+        } finally {
+            endpoint.closeRecording();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.dto.McpBulkResult;
+import cn.iocoder.boot.mcp.dto.McpServerConfigRequest;
+import cn.iocoder.boot.mcp.dto.McpServerPage;
+import cn.iocoder.boot.mcp.dto.McpServerStatus;
+import cn.iocoder.boot.mcp.dto.McpServerSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MCP服务器注册表规模基准
+ * 在2万个配置下测量批量导入、全量视图读取、游标分页、索引过滤与流式列出的耗时
+ *
+ * @author backend
+ */
+class McpServerRegistryBenchmark {
+
+    private static final int SERVERS = 20_000;
+    private static final int ROUNDS = 50;
+
+    @Test
+    void benchmark_万级配置下的注册表操作() {
+        McpClientConfigService service = new McpClientConfigService(new StdioProcessPool(new ObjectMapper()));
+        // STDIO配置不带命令，不会启动进程，只测量注册表本身
+        List<McpServerConfigRequest> configs = IntStream.range(0, SERVERS)
+                .mapToObj(i -> new McpServerConfigRequest()
+                        .setServerName(String.format("agent-%05d", i))
+                        .setTransportType(i % 4 == 0 ? McpServerConfigRequest.TransportType.STDIO
+                                : McpServerConfigRequest.TransportType.SSE)
+                        .setSseConfig(new McpServerConfigRequest.SseConfig().setUrl("http://agent-" + i + "/sse")))
+                .toList();
+
+        long start = System.nanoTime();
+        McpBulkResult bulk = service.configureMcpServers(configs);
+        long bulkNanos = System.nanoTime() - start;
+        assertEquals(SERVERS, bulk.getSucceeded());
+        for (int i = 0; i < SERVERS; i += 10) {
+            service.updateStatus(configs.get(i).getServerName(), McpServerStatus.READY);
+        }
+
+        // 全量读取：只读视图与旧实现（每次复制到新Map）对比
+        long viewNanos = time(() -> service.getConfiguredServers().size());
+        long copyNanos = time(() -> {
+            Map<String, String> copy = new ConcurrentHashMap<>();
+            service.getConfiguredServers().forEach((name, status) -> copy.put(name, status.name()));
+            return copy.size();
+        });
+
+        // 游标分页遍历全部
+        start = System.nanoTime();
+        int paged = 0;
+        String cursor = null;
+        do {
+            McpServerPage page = service.listServers(cursor, 500, null, null);
+            paged += page.getItems().size();
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        long pagedNanos = System.nanoTime() - start;
+        assertEquals(SERVERS, paged);
+
+        // 索引过滤首页
+        long filteredNanos = time(() -> service.listServers(null, 100,
+                McpServerConfigRequest.TransportType.STDIO, McpServerStatus.READY).getItems().size());
+        McpServerPage filtered = service.listServers(null, 1000, McpServerConfigRequest.TransportType.STDIO, McpServerStatus.READY);
+        assertTrue(filtered.getItems().stream().allMatch(item -> item.getTransportType() == McpServerConfigRequest.TransportType.STDIO
+                && item.getStatus() == McpServerStatus.READY));
+        assertEquals(SERVERS / 20, filtered.getItems().size());
+
+        // 流式列出
+        start = System.nanoTime();
+        List<McpServerSummary> streamed = new ArrayList<>();
+        service.streamServers(McpServerConfigRequest.TransportType.SSE, null).doOnNext(streamed::add).blockLast();
+        long streamNanos = System.nanoTime() - start;
+        assertEquals(SERVERS * 3 / 4, streamed.size());
+
+        // 批量删除
+        start = System.nanoTime();
+        McpBulkResult removed = service.removeServerConfigs(configs.stream().map(McpServerConfigRequest::getServerName).toList());
+        long removeNanos = System.nanoTime() - start;
+        assertEquals(SERVERS, removed.getSucceeded());
+        assertEquals(0, service.getConfiguredServerCount());
+        assertTrue(service.listServers(null, 10, McpServerConfigRequest.TransportType.SSE, null).getItems().isEmpty());
+
+        System.out.printf("配置数 %d%n", SERVERS);
+        System.out.printf("批量配置: %.1fms%n", bulkNanos / 1e6);
+        System.out.printf("全量读取: 只读视图 %.3fms，复制 %.3fms（每次）%n", viewNanos / 1e6, copyNanos / 1e6);
+        System.out.printf("分页遍历全部(每页500): %.1fms%n", pagedNanos / 1e6);
+        System.out.printf("索引过滤首页(STDIO+READY，100条): %.3fms（每次）%n", filteredNanos / 1e6);
+        System.out.printf("流式列出SSE: %.1fms%n", streamNanos / 1e6);
+        System.out.printf("批量删除: %.1fms%n", removeNanos / 1e6);
+    }
+
+    /**
+     * 预热后取多轮平均耗时
+     */
+    private static long time(java.util.function.IntSupplier action) {
+        int sink = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += action.getAsInt();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += action.getAsInt();
+        }
+        long elapsed = (System.nanoTime() - start) / ROUNDS;
+        assertTrue(sink >= 0);
+        return elapsed;
+    }
+}
@@ -0,0 +1,243 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.config.McpSseBackpressureFilter;
+import cn.iocoder.boot.mcp.config.OutboundBufferProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BinaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 出站慢消费者保护测试类
+ * 下游不请求时所有元素进入缓冲，以字符串长度作为字节数
+ *
+ * @author backend
+ */
+class OutboundBufferGuardTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OutboundBufferProperties properties;
+    private OutboundBufferGuard guard;
+    private Sinks.Many<String> source;
+    private List<String> discarded;
+    private SlowSubscriber subscriber;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new OutboundBufferProperties();
+        properties.setMaxBufferedBytes(10);
+        properties.setWriteTimeout(Duration.ofSeconds(30));
+        guard = new OutboundBufferGuard(properties, meterRegistry);
+        source = Sinks.many().unicast().onBackpressureBuffer();
+        discarded = new CopyOnWriteArrayList<>();
+        subscriber = new SlowSubscriber();
+    }
+
+    @Test
+    void drop_丢弃最早元素() {
+        subscribe(OutboundBufferGuard.OverflowStrategy.DROP, (a, b) -> a + b);
+
+        emit("aaaa", "bbbb", "cccc");
+
+        assertEquals(List.of("aaaa"), discarded);
+        assertEquals(8, totalBufferedBytes());
+        subscriber.request(10);
+        assertEquals(List.of("bbbb", "cccc"), subscriber.received);
+        assertEquals(0, totalBufferedBytes());
+        assertEquals(1.0, meterRegistry.counter("mcp.outbound.dropped", "stream", "test").count());
+    }
+
+    @Test
+    void drop_超大元素只丢弃自身且不影响字节计数() {
+        subscribe(OutboundBufferGuard.OverflowStrategy.DROP, (a, b) -> a + b);
+
+        emit("aaaa", "x".repeat(20), "bbbb");
+
+        assertEquals(List.of("x".repeat(20)), discarded, "已缓冲的元素不应因超大元素被丢弃");
+        assertEquals(8, totalBufferedBytes());
+        // 上限未被放大：再放入一个元素仍会挤掉最早的元素
+        emit("cccc");
+        assertEquals(List.of("x".repeat(20), "aaaa"), discarded);
+        assertEquals(8, totalBufferedBytes());
+
+        subscriber.request(10);
+        assertEquals(List.of("bbbb", "cccc"), subscriber.received);
+        assertEquals(0, totalBufferedBytes(), "排空后字节计数应回到0");
+        assertEquals(2.0, meterRegistry.counter("mcp.outbound.dropped", "stream", "test").count());
+    }
+
+    @Test
+    void coalesce_合并待发送元素() {
+        // 状态类消息只保留最新值
+        subscribe(OutboundBufferGuard.OverflowStrategy.COALESCE, (older, newer) -> newer);
+
+        emit("aaaa", "bbbb", "cccc");
+
+        assertEquals(4, totalBufferedBytes());
+        subscriber.request(10);
+        assertEquals(List.of("cccc"), subscriber.received);
+        assertNull(subscriber.error);
+        assertEquals(0, totalBufferedBytes());
+    }
+
+    @Test
+    void coalesce_合并后仍超限则断开() throws InterruptedException {
+        subscribe(OutboundBufferGuard.OverflowStrategy.COALESCE, (a, b) -> a + b);
+
+        emit("aaaa", "bbbb", "cccc");
+
+        assertTrue(subscriber.terminated.await(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, subscriber.error);
+        assertEquals(List.of("aaaabbbbcccc"), discarded);
+        assertEquals(0, totalBufferedBytes());
+        assertEquals(1.0, disconnected("overflow"));
+    }
+
+    @Test
+    void coalesce_未提供合并函数时拒绝() {
+        assertThrows(IllegalArgumentException.class,
+                () -> subscribe(OutboundBufferGuard.OverflowStrategy.COALESCE, null));
+    }
+
+    @Test
+    void properties_对话流与SSE流不支持COALESCE() {
+        OutboundBufferProperties defaults = new OutboundBufferProperties();
+        assertEquals(OutboundBufferGuard.OverflowStrategy.DISCONNECT, defaults.getChatStrategy());
+        assertEquals(OutboundBufferGuard.OverflowStrategy.DISCONNECT, defaults.getMcpSseStrategy());
+
+        // 两个流的元素只能拼接，拼接不会减少字节数
+        assertThrows(IllegalArgumentException.class,
+                () -> defaults.setChatStrategy(OutboundBufferGuard.OverflowStrategy.COALESCE));
+        assertThrows(IllegalArgumentException.class,
+                () -> defaults.setMcpSseStrategy(OutboundBufferGuard.OverflowStrategy.COALESCE));
+        defaults.setChatStrategy(OutboundBufferGuard.OverflowStrategy.DROP);
+        assertEquals(OutboundBufferGuard.OverflowStrategy.DROP, defaults.getChatStrategy());
+    }
+
+    @Test
+    void mcpSse_按配置策略原样转发事件() {
+        properties.setMaxBufferedBytes(1024);
+        McpSseBackpressureFilter filter = new McpSseBackpressureFilter(guard, properties, "/sse");
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/sse"));
+        DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+        filter.filter(exchange, chained -> chained.getResponse().writeAndFlushWith(Flux.just(
+                Flux.just(bufferFactory.wrap("event: message\n".getBytes(StandardCharsets.UTF_8)),
+                        bufferFactory.wrap("data: {\"id\":1}\n\n".getBytes(StandardCharsets.UTF_8))),
+                Flux.just(bufferFactory.wrap("data: {\"id\":2}\n\n".getBytes(StandardCharsets.UTF_8))))))
+                .block(Duration.ofSeconds(5));
+
+        assertEquals("event: message\ndata: {\"id\":1}\n\ndata: {\"id\":2}\n\n",
+                exchange.getResponse().getBodyAsString().block(Duration.ofSeconds(5)));
+        assertEquals(0.0, meterRegistry.get("mcp.outbound.buffered.bytes.total").gauge().value());
+    }
+
+    @Test
+    void disconnect_超限直接断开() throws InterruptedException {
+        subscribe(OutboundBufferGuard.OverflowStrategy.DISCONNECT, (a, b) -> a + b);
+
+        emit("aaaa", "bbbb", "cccc");
+
+        assertTrue(subscriber.terminated.await(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, subscriber.error);
+        assertEquals(List.of("cccc", "aaaa", "bbbb"), discarded);
+        assertEquals(0, totalBufferedBytes());
+        assertEquals(1.0, disconnected("overflow"));
+    }
+
+    @Test
+    void writeTimeout_长时间未读取则断开() throws InterruptedException {
+        properties.setWriteTimeout(Duration.ofMillis(200));
+        subscribe(OutboundBufferGuard.OverflowStrategy.DROP, (a, b) -> a + b);
+
+        emit("aaaa");
+
+        assertTrue(subscriber.terminated.await(2, TimeUnit.SECONDS), "应在写超时后断开");
+        assertInstanceOf(TimeoutException.class, subscriber.error);
+        assertEquals(List.of("aaaa"), discarded);
+        assertEquals(0, totalBufferedBytes());
+        assertEquals(1.0, disconnected("write-timeout"));
+    }
+
+    @Test
+    void writeTimeout_持续读取不会断开() throws InterruptedException {
+        properties.setWriteTimeout(Duration.ofMillis(200));
+        subscribe(OutboundBufferGuard.OverflowStrategy.DROP, (a, b) -> a + b);
+
+        for (int i = 0; i < 6; i++) {
+            emit("item" + i);
+            Thread.sleep(100);
+            subscriber.request(1);
+        }
+
+        assertNull(subscriber.error);
+        assertEquals(6, subscriber.received.size());
+    }
+
+    private void subscribe(OutboundBufferGuard.OverflowStrategy strategy, BinaryOperator<String> coalescer) {
+        guard.guard(source.asFlux(), "test", strategy, String::length, coalescer, discarded::add)
+                .subscribe(subscriber);
+    }
+
+    private void emit(String... items) {
+        for (String item : items) {
+            source.tryEmitNext(item).orThrow();
+        }
+    }
+
+    private double totalBufferedBytes() {
+        return meterRegistry.get("mcp.outbound.buffered.bytes.total").gauge().value();
+    }
+
+    private double disconnected(String reason) {
+        return meterRegistry.counter("mcp.outbound.disconnected", "stream", "test", "reason", reason).count();
+    }
+
+    /**
+     * 订阅后不主动请求，由测试控制读取节奏
+     */
+    private static final class SlowSubscriber extends BaseSubscriber<String> {
+
+        private final List<String> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private volatile Throwable error;
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+        }
+
+        @Override
+        protected void hookOnNext(String value) {
+            received.add(value);
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            error = throwable;
+            terminated.countDown();
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            terminated.countDown();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.config.PayloadLoggingProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 载荷日志测试类
+ *
+ * @author backend
+ */
+class PayloadLoggerTest {
+
+    @Test
+    void testTruncateAndRedact_保留首尾并脱敏() {
+        PayloadLoggingProperties properties = new PayloadLoggingProperties();
+        properties.setHeadChars(10);
+        properties.setTailChars(5);
+        PayloadLogger payloadLogger = new PayloadLogger(properties);
+
+        String truncated = payloadLogger.truncate("0123456789abcdefghijVWXYZ");
+        assertTrue(truncated.startsWith("0123456789"), "应保留头部");
+        assertTrue(truncated.endsWith("VWXYZ"), "应保留尾部");
+        assertTrue(truncated.contains("省略10字符"), "应标注省略长度");
+
+        String redacted = payloadLogger.redact("{\"api_key\":\"abc123\",\"data\":\"ok\"}");
+        assertFalse(redacted.contains("abc123"), "应脱敏api_key");
+        assertTrue(redacted.contains("\"data\":\"ok\""), "不应影响其他字段");
+    }
+
+    @Test
+    void testRender_跨越截断边界的敏感值也被脱敏() {
+        PayloadLoggingProperties properties = new PayloadLoggingProperties();
+        properties.setHeadChars(20);
+        properties.setTailChars(5);
+        PayloadLogger payloadLogger = new PayloadLogger(properties);
+
+        // 先截断会留下"sk-ABCDEFG"片段，长度不足8位而无法匹配
+        String rendered = payloadLogger.render("0123456789sk-ABCDEFGHIJKLMNOP" + "x".repeat(100));
+
+        assertFalse(rendered.contains("sk-ABC"), "截断前应完成脱敏: " + rendered);
+        assertTrue(rendered.startsWith("0123456789***"));
+    }
+}
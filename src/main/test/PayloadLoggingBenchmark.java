@@ -0,0 +1,135 @@
+package cn.iocoder.boot.mcp.service;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.ContextInitializer;
+import ch.qos.logback.core.Appender;
+import cn.iocoder.boot.mcp.config.PayloadLoggingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 载荷日志开销基准
+ * 加载logback-spring.xml中的实际配置，以相同的载荷和相同的采样截断，
+ * 对比mcp.payload直连CONSOLE（同步）与经ASYNC_PAYLOAD（异步、neverBlock）的单次调用开销；
+ * 控制台输出重定向到临时文件，保留真实的写出成本
+ *
+ * @author backend
+ */
+class PayloadLoggingBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int CALLS_PER_THREAD = 5_000;
+    private static final int PAYLOAD_CHARS = 16 * 1024;
+
+    private LoggerContext context;
+    private PrintStream originalOut;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(context);
+        configurator.doConfigure(getClass().getClassLoader().getResource("logback-spring.xml"));
+        originalOut = System.out;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        System.setOut(originalOut);
+        context.reset();
+        new ContextInitializer(context).autoConfig();
+    }
+
+    @Test
+    void benchmark_同步与异步通道的单次调用开销(@TempDir Path dir) throws Exception {
+        Logger payloadLog = context.getLogger(PayloadLogger.LOGGER_NAME);
+        Appender<ILoggingEvent> async = payloadLog.getAppender("ASYNC_PAYLOAD");
+        assertInstanceOf(AsyncAppender.class, async, "应加载logback-spring.xml中的载荷通道");
+        assertTrue(((AsyncAppender) async).isNeverBlock());
+        assertFalse(payloadLog.isAdditive());
+        AsyncAppender rootAsync = (AsyncAppender) context.getLogger(Logger.ROOT_LOGGER_NAME).getAppender("ASYNC_CONSOLE");
+        Appender<ILoggingEvent> console = rootAsync.getAppender("CONSOLE");
+        assertNotNull(console, "应加载Spring Boot的CONSOLE输出");
+
+        String payload = buildPayload();
+        PayloadLoggingProperties properties = new PayloadLoggingProperties();
+        // 每次调用都输出，两种通道渲染相同的内容
+        properties.setDefaultSampleRate(1.0);
+        PayloadLogger payloadLogger = new PayloadLogger(properties);
+        Runnable call = () -> payloadLogger.log("queryWithAgenticRag", "response", payload);
+
+        double asyncNanos;
+        double syncNanos;
+        try (PrintStream sink = new PrintStream(new BufferedOutputStream(
+                Files.newOutputStream(dir.resolve("console.log"))), false)) {
+            System.setOut(sink);
+
+            runLoad(call, 200);
+            asyncNanos = runLoad(call, CALLS_PER_THREAD);
+
+            payloadLog.detachAppender(async);
+            payloadLog.addAppender(console);
+            runLoad(call, 200);
+            syncNanos = runLoad(call, CALLS_PER_THREAD);
+
+            payloadLog.detachAppender(console);
+            payloadLog.addAppender(async);
+        } finally {
+            System.setOut(originalOut);
+        }
+
+        System.out.printf("载荷日志单次调用开销：同步CONSOLE %.0f ns，异步ASYNC_PAYLOAD %.0f ns（%d线程，载荷%d字符，采样率100%%）%n",
+                syncNanos, asyncNanos, THREADS, PAYLOAD_CHARS);
+        assertTrue(asyncNanos < syncNanos, "异步通道不应让业务线程等待控制台输出");
+    }
+
+    private double runLoad(Runnable call, int callsPerThread) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < callsPerThread; i++) {
+                    call.run();
+                }
+                done.countDown();
+            });
+        }
+        done.await(5, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        return (double) elapsed / ((long) THREADS * callsPerThread);
+    }
+
+    private String buildPayload() {
+        List<String> parts = new ArrayList<>();
+        int length = 0;
+        for (int i = 0; length < PAYLOAD_CHARS; i++) {
+            String part = "{\"doc\":" + i + ",\"text\":\"检索到的文档片段内容" + i + "\"}";
+            parts.add(part);
+            length += part.length() + 1;
+        }
+        return "[" + String.join(",", parts) + "]";
+    }
+}
@@ -0,0 +1,332 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.dto.McpBulkResult;
+import cn.iocoder.boot.mcp.dto.McpServerConfigRequest;
+import cn.iocoder.boot.mcp.dto.McpServerStatus;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * STDIO进程池测试类
+ * 使用StubStdioMcpServer作为本地STDIO服务器
+ *
+ * @author backend
+ */
+class StdioProcessPoolTest {
+
+    private static final String SERVER_NAME = "stub-stdio-server";
+
+    private static final String JAVA = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+    private StdioProcessPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new StdioProcessPool(new ObjectMapper());
+        ReflectionTestUtils.setField(pool, "poolSize", 2);
+        ReflectionTestUtils.setField(pool, "maxCallsPerProcess", 3);
+        ReflectionTestUtils.setField(pool, "maxConcurrentPerProcess", 4);
+        ReflectionTestUtils.setField(pool, "allowedCommands", Set.of(JAVA, "/nonexistent/mcp-server"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownAll();
+    }
+
+    @Test
+    void testRegister_保存配置不启动进程() throws Exception {
+        pool.register(stubConfig(0));
+
+        Thread.sleep(500);
+        assertEquals(0, pool.readyCount(SERVER_NAME), "未开启预热时保存配置不应启动进程");
+    }
+
+    @Test
+    void testRegister_显式开启预热时启动进程() throws Exception {
+        ReflectionTestUtils.setField(pool, "warmUpOnConfigure", true);
+        pool.register(stubConfig(0));
+
+        awaitReady(2);
+        assertEquals(2, pool.readyCount(SERVER_NAME), "应预启动2个进程");
+    }
+
+    @Test
+    void testLease_首次租借时启动进程并返回结果() throws Exception {
+        pool.register(stubConfig(0));
+
+        try (StdioProcessPool.Lease lease = pool.lease(SERVER_NAME)) {
+            JsonNode result = lease.request("tools/list", null).get(5, TimeUnit.SECONDS);
+            assertEquals("tools/list", result.get("method").asText(), "应返回请求方法");
+            assertEquals(lease.process().pid(), result.get("pid").asLong(), "应由租借的进程响应");
+        }
+        awaitReady(2);
+        assertEquals(2, pool.readyCount(SERVER_NAME), "首次租借后应补足到池大小");
+    }
+
+    @Test
+    void testCall_租借进程发送请求() {
+        pool.register(stubConfig(0));
+
+        JsonNode result = pool.call(SERVER_NAME, "tools/list", null).block(Duration.ofSeconds(30));
+
+        assertNotNull(result);
+        assertEquals("tools/list", result.get("method").asText());
+    }
+
+    @Test
+    void testLease_空闲进程退出后被替换() throws Exception {
+        ReflectionTestUtils.setField(pool, "poolSize", 1);
+        pool.register(stubConfig(0));
+        long pid;
+        try (StdioProcessPool.Lease lease = pool.lease(SERVER_NAME)) {
+            pid = lease.process().pid();
+        }
+
+        ProcessHandle.of(pid).ifPresent(ProcessHandle::destroyForcibly);
+        awaitExit(pid);
+
+        try (StdioProcessPool.Lease lease = pool.lease(SERVER_NAME)) {
+            assertNotEquals(pid, lease.process().pid(), "已退出的进程应被替换");
+            lease.request("tools/list", null).get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void testHealthCheck_定期补足已退出的进程() throws Exception {
+        ReflectionTestUtils.setField(pool, "poolSize", 1);
+        pool.register(stubConfig(0));
+        long pid;
+        try (StdioProcessPool.Lease lease = pool.lease(SERVER_NAME)) {
+            pid = lease.process().pid();
+        }
+
+        ProcessHandle.of(pid).ifPresent(ProcessHandle::destroyForcibly);
+        awaitExit(pid);
+        pool.checkHealth();
+
+        awaitReady(1);
+        assertEquals(1, pool.readyCount(SERVER_NAME), "健康检查应替换已退出的进程");
+    }
+
+    @Test
+    void testLease_启动失败时快速失败并按退避重试() throws Exception {
+        ReflectionTestUtils.setField(pool, "spawnRetryBackoff", Duration.ofMillis(200));
+        pool.register(new McpServerConfigRequest()
+                .setServerName(SERVER_NAME)
+                .setTransportType(McpServerConfigRequest.TransportType.STDIO)
+                .setStdioConfig(new McpServerConfigRequest.StdioConfig().setCommand("/nonexistent/mcp-server")));
+
+        long start = System.nanoTime();
+        assertThrows(IllegalStateException.class, () -> pool.lease(SERVER_NAME));
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5, "启动失败时不应等到租借超时");
+
+        // 退避间隔过后再次租借会重新尝试启动
+        Thread.sleep(300);
+        assertThrows(IllegalStateException.class, () -> pool.lease(SERVER_NAME));
+    }
+
+    @Test
+    void testLease_同一进程复用并发请求() throws Exception {
+        ReflectionTestUtils.setField(pool, "poolSize", 1);
+        ReflectionTestUtils.setField(pool, "maxCallsPerProcess", 100);
+        pool.register(stubConfig(300));
+
+        try (StdioProcessPool.Lease first = pool.lease(SERVER_NAME);
+             StdioProcessPool.Lease second = pool.lease(SERVER_NAME)) {
+            assertEquals(first.process().pid(), second.process().pid(), "两个租约应复用同一进程");
+
+            long start = System.nanoTime();
+            List<CompletableFuture<JsonNode>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add((i % 2 == 0 ? first : second).request("tools/call", null));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(elapsedMillis < 1000, "并发请求应在同一进程上并行处理，实际耗时: " + elapsedMillis);
+        }
+    }
+
+    @Test
+    void testRecycle_调用次数超限后替换进程() throws Exception {
+        ReflectionTestUtils.setField(pool, "poolSize", 1);
+        pool.register(stubConfig(0));
+
+        Set<Long> pids = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            try (StdioProcessPool.Lease lease = pool.lease(SERVER_NAME)) {
+                pids.add(lease.process().pid());
+                lease.request("tools/call", null).get(5, TimeUnit.SECONDS);
+                lease.request("tools/call", null).get(5, TimeUnit.SECONDS);
+            }
+        }
+
+        assertTrue(pids.size() >= 2, "进程达到调用上限后应被回收替换");
+    }
+
+    @Test
+    void testStatusListener_启动结果回报到配置服务() {
+        McpClientConfigService service = new McpClientConfigService(pool);
+        service.listenToProcessPool();
+        service.configureMcpServer(stubConfig(0));
+        assertEquals(McpServerStatus.CONFIGURED, service.getConfiguredServers().get(SERVER_NAME));
+
+        service.listTools(SERVER_NAME).block(Duration.ofSeconds(30));
+        assertEquals(McpServerStatus.READY, service.getConfiguredServers().get(SERVER_NAME), "进程启动成功后应为READY");
+
+        service.configureMcpServer(new McpServerConfigRequest()
+                .setServerName(SERVER_NAME)
+                .setTransportType(McpServerConfigRequest.TransportType.STDIO)
+                .setStdioConfig(new McpServerConfigRequest.StdioConfig().setCommand("/nonexistent/mcp-server")));
+        assertThrows(IllegalStateException.class, () -> service.listTools(SERVER_NAME).block(Duration.ofSeconds(30)));
+        assertEquals(McpServerStatus.FAILED, service.getConfiguredServers().get(SERVER_NAME), "进程启动失败后应为FAILED");
+    }
+
+    @Test
+    void testConfigureMcpServers_限制批量大小并拒绝空元素() {
+        McpClientConfigService service = new McpClientConfigService(pool);
+        ReflectionTestUtils.setField(pool, "warmUpOnConfigure", true);
+
+        List<McpServerConfigRequest> oversized = new ArrayList<>();
+        for (int i = 0; i <= McpClientConfigService.MAX_BULK_SIZE; i++) {
+            oversized.add(stubConfig(0));
+        }
+        assertThrows(IllegalArgumentException.class, () -> service.configureMcpServers(oversized));
+        assertEquals(0, service.getConfiguredServerCount());
+
+        List<McpServerConfigRequest> withNull = new ArrayList<>();
+        withNull.add(stubConfig(0));
+        withNull.add(null);
+        McpBulkResult result = service.configureMcpServers(withNull);
+        assertEquals(1, result.getSucceeded());
+        assertEquals(1, result.getFailures().size(), "空元素应作为失败项返回");
+        assertEquals(0, pool.readyCount(SERVER_NAME), "批量配置不应预热进程");
+    }
+
+    @Test
+    void testRecycle_并发租借与回收不关闭已租出的进程() throws Exception {
+        // 每个进程只服务一次调用，归还即回收，回收与新租借频繁交错
+        ReflectionTestUtils.setField(pool, "maxCallsPerProcess", 1);
+        pool.register(stubConfig(0));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                workers.add(executor.submit(() -> {
+                    for (int call = 0; call < 5; call++) {
+                        try (StdioProcessPool.Lease lease = pool.lease(SERVER_NAME)) {
+                            lease.request("tools/call", null).get(10, TimeUnit.SECONDS);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRegister_改为其他传输类型时关闭进程池() throws Exception {
+        pool.register(stubConfig(0));
+        long pid;
+        try (StdioProcessPool.Lease lease = pool.lease(SERVER_NAME)) {
+            pid = lease.process().pid();
+        }
+
+        pool.register(new McpServerConfigRequest()
+                .setServerName(SERVER_NAME)
+                .setTransportType(McpServerConfigRequest.TransportType.SSE));
+
+        assertEquals(0, pool.readyCount(SERVER_NAME));
+        assertThrows(IllegalStateException.class, () -> pool.lease(SERVER_NAME), "原进程池不应再被租借");
+        awaitExit(pid);
+        assertFalse(ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false), "原进程应被关闭");
+        pool.checkHealth();
+        Thread.sleep(500);
+        assertEquals(0, pool.readyCount(SERVER_NAME), "健康检查不应重新启动原进程");
+    }
+
+    @Test
+    void testRegister_拒绝不在允许列表中的命令() {
+        McpClientConfigService service = new McpClientConfigService(pool);
+        McpServerConfigRequest config = new McpServerConfigRequest()
+                .setServerName(SERVER_NAME)
+                .setTransportType(McpServerConfigRequest.TransportType.STDIO)
+                .setStdioConfig(new McpServerConfigRequest.StdioConfig().setCommand("/bin/sh")
+                        .setArgs(List.of("-c", "touch /tmp/pwned")));
+
+        assertFalse(service.configureMcpServer(config).isSuccess());
+        assertFalse(service.isServerConfigured(SERVER_NAME), "被拒绝的配置不应保存");
+        assertThrows(IllegalArgumentException.class, () -> pool.register(config));
+
+        ReflectionTestUtils.setField(pool, "allowedCommands", Set.of());
+        assertFalse(service.configureMcpServer(stubConfig(0)).isSuccess(), "允许列表为空时应关闭STDIO进程启动");
+        assertTrue(service.configureMcpServer(new McpServerConfigRequest()
+                .setServerName("sse-server")
+                .setTransportType(McpServerConfigRequest.TransportType.SSE)).isSuccess(), "非STDIO配置不受影响");
+    }
+
+    @Test
+    void testConfigureMcpServer_拒绝与列表路由冲突的保留名称() {
+        McpClientConfigService service = new McpClientConfigService(pool);
+
+        for (String reserved : McpClientConfigService.RESERVED_SERVER_NAMES) {
+            assertFalse(service.configureMcpServer(new McpServerConfigRequest()
+                    .setServerName(reserved)
+                    .setTransportType(McpServerConfigRequest.TransportType.SSE)).isSuccess());
+            assertFalse(service.isServerConfigured(reserved));
+        }
+        assertTrue(service.configureMcpServer(new McpServerConfigRequest()
+                .setServerName("page-server")
+                .setTransportType(McpServerConfigRequest.TransportType.SSE)).isSuccess());
+    }
+
+    private McpServerConfigRequest stubConfig(long delayMillis) {
+        return new McpServerConfigRequest()
+                .setServerName(SERVER_NAME)
+                .setTransportType(McpServerConfigRequest.TransportType.STDIO)
+                .setStdioConfig(new McpServerConfigRequest.StdioConfig()
+                        .setCommand(JAVA)
+                        .setArgs(List.of("-cp", System.getProperty("java.class.path"),
+                                StubStdioMcpServer.class.getName(), String.valueOf(delayMillis))));
+    }
+
+    private static void awaitExit(long pid) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    private void awaitReady(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (pool.readyCount(SERVER_NAME) < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+}
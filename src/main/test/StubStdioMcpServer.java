@@ -0,0 +1,58 @@
+package cn.iocoder.boot.mcp.service;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 测试用的极简STDIO MCP服务器
+ * 对每个带id的请求返回结果，结果中带上进程pid与请求方法
+ *
+ * @author backend
+ */
+public class StubStdioMcpServer {
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final Pattern METHOD = Pattern.compile("\"method\"\\s*:\\s*\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        long delayMillis = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        PrintStream out = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        long pid = ProcessHandle.current().pid();
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            Matcher id = ID.matcher(line);
+            if (!id.find()) {
+                continue;
+            }
+            Matcher method = METHOD.matcher(line);
+            String methodName = method.find() ? method.group(1) : "";
+            String requestId = id.group(1);
+
+            // 非初始化请求异步响应，模拟同一进程上的并发请求
+            Runnable respond = () -> {
+                synchronized (out) {
+                    out.println("{\"jsonrpc\":\"2.0\",\"id\":" + requestId
+                            + ",\"result\":{\"pid\":" + pid + ",\"method\":\"" + methodName + "\"}}");
+                }
+            };
+            if ("initialize".equals(methodName) || delayMillis <= 0) {
+                respond.run();
+            } else {
+                new Thread(() -> {
+                    try {
+                        Thread.sleep(delayMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    respond.run();
+                }).start();
+            }
+        }
+    }
+}
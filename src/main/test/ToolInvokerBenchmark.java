@@ -0,0 +1,107 @@
+package cn.iocoder.boot.mcp.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.ai.model.function.FunctionCallback;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 工具调用开销JMH基准
+ * 对比MethodToolCallbackProvider的反射调用与PrecompiledToolCallbackProvider的预编译调用
+ *
+ * @author backend
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToolInvokerBenchmark {
+
+    private static final String SINGLE_ARG = "{\"query\":\"什么是人工智能？\"}";
+    private static final String LIST_ARG = "{\"queries\":[\"查询1\",\"查询2\",\"查询3\"]}";
+
+    private FunctionCallback reflectiveQuery;
+    private FunctionCallback reflectiveBatch;
+    private FunctionCallback precompiledQuery;
+    private FunctionCallback precompiledBatch;
+
+    /**
+     * 与AgenticRagMcpTools签名一致、但不发起网络调用的工具，只测量分发开销
+     */
+    public static class BenchmarkTools {
+
+        @Tool(description = "使用AgenticRag服务进行智能查询")
+        public String queryWithAgenticRag(String query) {
+            return query;
+        }
+
+        @Tool(description = "批量查询AgenticRag服务")
+        public String batchQueryWithAgenticRag(List<String> queries) {
+            return String.valueOf(queries.size());
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        BenchmarkTools tools = new BenchmarkTools();
+        FunctionCallback[] reflective = MethodToolCallbackProvider.builder().toolObjects(tools).build().getToolCallbacks();
+        FunctionCallback[] precompiled = PrecompiledToolCallbackProvider.of(new ObjectMapper(), tools).getToolCallbacks();
+
+        reflectiveQuery = find(reflective, "queryWithAgenticRag");
+        reflectiveBatch = find(reflective, "batchQueryWithAgenticRag");
+        precompiledQuery = find(precompiled, "queryWithAgenticRag");
+        precompiledBatch = find(precompiled, "batchQueryWithAgenticRag");
+    }
+
+    @Benchmark
+    public String reflectiveSingleArgument() {
+        return reflectiveQuery.call(SINGLE_ARG);
+    }
+
+    @Benchmark
+    public String precompiledSingleArgument() {
+        return precompiledQuery.call(SINGLE_ARG);
+    }
+
+    @Benchmark
+    public String reflectiveListArgument() {
+        return reflectiveBatch.call(LIST_ARG);
+    }
+
+    @Benchmark
+    public String precompiledListArgument() {
+        return precompiledBatch.call(LIST_ARG);
+    }
+
+    private static FunctionCallback find(FunctionCallback[] callbacks, String name) {
+        return Arrays.stream(callbacks)
+                .filter(callback -> name.equals(callback.getName()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ToolInvokerBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
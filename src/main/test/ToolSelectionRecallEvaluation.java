@@ -0,0 +1,88 @@
+package cn.iocoder.boot.mcp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工具选择召回率离线评估
+ * 在包含干扰工具的目录上，统计标注提示的期望工具是否出现在前k个选择结果中
+ *
+ * @author backend
+ */
+class ToolSelectionRecallEvaluation {
+
+    private static final int TOP_K = 5;
+
+    /**
+     * 标注数据：提示 -> 期望工具
+     */
+    private static final Map<String, String> LABELLED_PROMPTS = new LinkedHashMap<>();
+
+    static {
+        LABELLED_PROMPTS.put("请使用AgenticRag工具查询: Spring Boot自动配置原理", "queryWithAgenticRag");
+        LABELLED_PROMPTS.put("帮我智能查询一下公司年假制度", "queryWithAgenticRag");
+        LABELLED_PROMPTS.put("一次性批量查询这三个问题：退款流程、发票抬头、物流时效", "batchQueryWithAgenticRag");
+        LABELLED_PROMPTS.put("检查AgenticRag服务现在是否可用", "getAgenticRagStatus");
+        LABELLED_PROMPTS.put("AgenticRag服务状态怎么样", "getAgenticRagStatus");
+        LABELLED_PROMPTS.put("北京明天的天气预报", "getWeatherForecast");
+        LABELLED_PROMPTS.put("把这段话翻译成英文", "translateText");
+        LABELLED_PROMPTS.put("send an email to the on-call engineer", "sendEmail");
+        LABELLED_PROMPTS.put("create a jira ticket for the login bug", "createIssue");
+        LABELLED_PROMPTS.put("查询订单12345的物流信息", "trackShipment");
+    }
+
+    @Test
+    void evaluate_前k个工具的召回率() {
+        ToolSelectionIndex index = new ToolSelectionIndex();
+        index.refresh(catalog());
+
+        int hits = 0;
+        for (Map.Entry<String, String> labelled : LABELLED_PROMPTS.entrySet()) {
+            List<ToolSelectionIndex.ScoredTool> selected = index.search(labelled.getKey(), TOP_K);
+            boolean hit = selected.stream().anyMatch(tool -> tool.name().equals(labelled.getValue()));
+            if (hit) {
+                hits++;
+            } else {
+                System.out.printf("未召回: %s -> 期望 %s，实际 %s%n", labelled.getKey(), labelled.getValue(), selected);
+            }
+        }
+
+        double recall = (double) hits / LABELLED_PROMPTS.size();
+        System.out.printf("工具目录 %d 个，Recall@%d = %.2f%n", index.size(), TOP_K, recall);
+        assertTrue(recall >= 0.8, "Recall@" + TOP_K + " 应不低于0.8，实际: " + recall);
+    }
+
+    @Test
+    void testRefresh_只重新计算变化的工具() {
+        ToolSelectionIndex index = new ToolSelectionIndex();
+        Map<String, String> tools = catalog();
+        assertEquals(tools.size(), index.refresh(tools), "首次刷新应计算全部工具");
+        assertEquals(0, index.refresh(tools), "工具未变化时不应重新计算");
+
+        tools.put("translateText", "将文本翻译为指定语言，支持中英日韩");
+        tools.remove("sendEmail");
+        assertEquals(1, index.refresh(tools), "只应重新计算描述变化的工具");
+        assertEquals(tools.size(), index.size(), "已删除的工具应移出索引");
+    }
+
+    private Map<String, String> catalog() {
+        Map<String, String> tools = new LinkedHashMap<>();
+        tools.put("queryWithAgenticRag", "使用AgenticRag服务进行智能查询");
+        tools.put("batchQueryWithAgenticRag", "批量查询AgenticRag服务");
+        tools.put("getAgenticRagStatus", "检查AgenticRag服务状态");
+        tools.put("getWeatherForecast", "查询城市未来几天的天气预报");
+        tools.put("translateText", "将文本翻译为指定语言");
+        tools.put("sendEmail", "send an email message to a recipient");
+        tools.put("createIssue", "create a new issue or ticket in the issue tracker");
+        tools.put("trackShipment", "根据订单号查询物流信息和快递轨迹");
+        for (int i = 0; i < 60; i++) {
+            tools.put("internalTool" + i, "内部运维工具" + i + "，用于管理集群节点与配置项" + (i % 7));
+        }
+        return tools;
+    }
+}
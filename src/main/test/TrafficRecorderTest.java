@@ -0,0 +1,66 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.config.PayloadLoggingProperties;
+import cn.iocoder.boot.mcp.config.TrafficRecordingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流量录制器测试类
+ *
+ * @author backend
+ */
+class TrafficRecorderTest {
+
+    @Test
+    void record_写入前脱敏(@TempDir Path dir) throws Exception {
+        TrafficRecorder recorder = newRecorder(dir.resolve("mcp-traffic.rec.gz"));
+        try {
+            recorder.recordToolCall("queryWithAgenticRag", "{\"query\":\"q\",\"apiKey\":\"abc123\"}",
+                    "\"token=xyz\"", true, System.currentTimeMillis(), 1_000);
+            recorder.recordUpstream("GET", "/query?q=sk-ABCDEFGH1234", 200, "{\"password\":\"p@ss\"}",
+                    System.currentTimeMillis(), 1_000);
+        } finally {
+            recorder.close();
+        }
+
+        List<TrafficRecorder.Entry> entries = TrafficRecorder.read(recorder.getFile());
+        assertEquals(2, entries.size());
+        for (TrafficRecorder.Entry entry : entries) {
+            String recorded = entry.request() + entry.response();
+            assertFalse(recorded.contains("abc123"), recorded);
+            assertFalse(recorded.contains("xyz"), recorded);
+            assertFalse(recorded.contains("sk-ABCDEFGH1234"), recorded);
+            assertFalse(recorded.contains("p@ss"), recorded);
+        }
+    }
+
+    @Test
+    void record_重启不覆盖之前的录制(@TempDir Path dir) throws Exception {
+        Path configured = dir.resolve("mcp-traffic.rec.gz");
+        TrafficRecorder first = newRecorder(configured);
+        first.recordToolCall("getAgenticRagStatus", "{}", "\"UP\"", true, System.currentTimeMillis(), 1_000);
+        first.close();
+        Thread.sleep(5);
+        TrafficRecorder second = newRecorder(configured);
+        second.close();
+
+        assertNotEquals(first.getFile(), second.getFile());
+        assertTrue(first.getFile().getFileName().toString().startsWith("mcp-traffic-"));
+        assertTrue(first.getFile().getFileName().toString().endsWith(".rec.gz"));
+        assertEquals(1, TrafficRecorder.read(first.getFile()).size(), "第一次的录制应保留");
+    }
+
+    private static TrafficRecorder newRecorder(Path file) {
+        TrafficRecordingProperties properties = new TrafficRecordingProperties();
+        properties.setEnabled(true);
+        properties.setFile(file.toString());
+        return new TrafficRecorder(properties, new PayloadLogger(new PayloadLoggingProperties()), new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,263 @@
+package cn.iocoder.boot.mcp.service;
+
+import cn.iocoder.boot.mcp.config.AdmissionProperties;
+import cn.iocoder.boot.mcp.config.PayloadLoggingProperties;
+import cn.iocoder.boot.mcp.config.PrecompiledToolCallbackProvider;
+import cn.iocoder.boot.mcp.config.RetryProperties;
+import cn.iocoder.boot.mcp.config.TrafficRecordingProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流量回放压测
+ * 读取TrafficRecorder录制的工具调用，以MockWebServer按录制的响应与耗时模拟AgenticRag，
+ * 按原始节奏（或加速）对当前构建回放，报告与录制时相比的延迟和吞吐变化
+ *
+ * 运行参数（系统属性）：
+ * mcp.replay.file 录制文件，未指定时先生成一份样例录制；
+ * mcp.replay.speed 回放加速倍数，默认1；
+ * mcp.replay.max-p95-regression 允许的p95延迟回退比例，默认0.5
+ *
+ * @author backend
+ */
+class TrafficReplayHarness {
+
+    private static final double SPEED = Double.parseDouble(System.getProperty("mcp.replay.speed", "1"));
+    private static final double MAX_P95_REGRESSION =
+            Double.parseDouble(System.getProperty("mcp.replay.max-p95-regression", "0.5"));
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void replay_回放录制流量并对比延迟与吞吐(@TempDir Path dir) throws Exception {
+        String recordingFile = System.getProperty("mcp.replay.file");
+        Path file = recordingFile != null ? Path.of(recordingFile) : recordSample(dir.resolve("sample.rec.gz"));
+
+        List<TrafficRecorder.Entry> entries = TrafficRecorder.read(file);
+        List<TrafficRecorder.Entry> toolCalls = entries.stream()
+                .filter(entry -> entry.type() == TrafficRecorder.Type.TOOL_CALL)
+                .toList();
+        assertFalse(toolCalls.isEmpty(), "录制文件中没有工具调用");
+
+        try (MockWebServer stub = new MockWebServer()) {
+            stub.setDispatcher(new RecordedResponseDispatcher(entries));
+            stub.start();
+            Map<String, ToolCallback> callbacks = callbacks(PrecompiledToolCallbackProvider.of(objectMapper,
+                    tools(stub, null)));
+
+            List<Long> replayed = Collections.synchronizedList(new ArrayList<>());
+            long replayStart = System.nanoTime();
+            replay(toolCalls, callbacks, replayed);
+            double replaySeconds = (System.nanoTime() - replayStart) / 1e9;
+
+            List<Long> recorded = toolCalls.stream().map(TrafficRecorder.Entry::durationNanos).toList();
+            double recordedSeconds = span(toolCalls) / 1e9;
+            // 加速回放时按倍数折算，使吞吐可与录制时直接比较
+            double recordedThroughput = toolCalls.size() / recordedSeconds;
+            double replayedThroughput = toolCalls.size() / (replaySeconds * SPEED);
+
+            report("p50", percentile(recorded, 0.5), percentile(replayed, 0.5));
+            report("p95", percentile(recorded, 0.95), percentile(replayed, 0.95));
+            report("p99", percentile(recorded, 0.99), percentile(replayed, 0.99));
+            System.out.printf("吞吐(折算到1倍速): 录制 %.1f/s，回放 %.1f/s，变化 %+.1f%%，加速倍数 %.1f，调用 %d 次%n",
+                    recordedThroughput, replayedThroughput, delta(recordedThroughput, replayedThroughput), SPEED,
+                    toolCalls.size());
+
+            double p95Regression = (double) percentile(replayed, 0.95) / Math.max(1, percentile(recorded, 0.95)) - 1;
+            assertTrue(p95Regression <= MAX_P95_REGRESSION,
+                    String.format("p95延迟回退%.1f%%，超过阈值%.1f%%", p95Regression * 100, MAX_P95_REGRESSION * 100));
+        }
+    }
+
+    /**
+     * 按录制时的相对时间（除以加速倍数）调度每次工具调用
+     */
+    private void replay(List<TrafficRecorder.Entry> toolCalls, Map<String, ToolCallback> callbacks,
+                        List<Long> latencies) throws Exception {
+        long origin = toolCalls.get(0).timestampMillis();
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(16);
+        try {
+            List<ScheduledFuture<?>> futures = new ArrayList<>();
+            for (TrafficRecorder.Entry call : toolCalls) {
+                ToolCallback callback = callbacks.get(call.name());
+                if (callback == null) {
+                    System.out.printf("跳过当前构建中不存在的工具: %s%n", call.name());
+                    continue;
+                }
+                long delayMicros = (long) ((call.timestampMillis() - origin) * 1000 / SPEED);
+                futures.add(executor.schedule(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        callback.call(call.request());
+                    } finally {
+                        latencies.add(System.nanoTime() - start);
+                    }
+                }, delayMicros, TimeUnit.MICROSECONDS));
+            }
+            for (ScheduledFuture<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 对模拟的生产后端发起一批调用并录制，作为没有外部录制文件时的回放输入
+     */
+    private Path recordSample(Path file) throws Exception {
+        TrafficRecordingProperties properties = new TrafficRecordingProperties();
+        properties.setEnabled(true);
+        properties.setFile(file.toString());
+        TrafficRecorder recorder = new TrafficRecorder(properties, new PayloadLogger(new PayloadLoggingProperties()),
+                new SimpleMeterRegistry());
+
+        try (MockWebServer production = new MockWebServer()) {
+            production.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) {
+                    String path = request.getPath() == null ? "" : request.getPath();
+                    String body = path.startsWith("/health")
+                            ? "{\"status\":\"UP\"}"
+                            : "{\"status\":\"success\",\"data\":\"" + "结果".repeat(ThreadLocalRandom.current().nextInt(10, 200)) + "\"}";
+                    return new MockResponse()
+                            .setBody(body)
+                            .addHeader("Content-Type", "application/json; charset=UTF-8")
+                            .setBodyDelay(ThreadLocalRandom.current().nextLong(20, 80), TimeUnit.MILLISECONDS);
+                }
+            });
+            production.start();
+
+            Map<String, ToolCallback> callbacks = callbacks(PrecompiledToolCallbackProvider.of(objectMapper, recorder,
+                    AgenticRagMcpTools::isFailedResult, tools(production, recorder)));
+            ScheduledExecutorService executor = Executors.newScheduledThreadPool(8);
+            try {
+                List<ScheduledFuture<?>> futures = new ArrayList<>();
+                for (int i = 0; i < 60; i++) {
+                    String tool = i % 10 == 9 ? "getAgenticRagStatus" : "queryWithAgenticRag";
+                    String arguments = i % 10 == 9 ? "{}" : objectMapper.writeValueAsString(Map.of("query", "样例问题" + (i % 20)));
+                    futures.add(executor.schedule(() -> callbacks.get(tool).call(arguments), i * 25L, TimeUnit.MILLISECONDS));
+                }
+                for (ScheduledFuture<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            recorder.close();
+        }
+        return recorder.getFile();
+    }
+
+    private AgenticRagMcpTools tools(MockWebServer server, TrafficRecorder recorder) {
+        String baseUrl = String.format("http://localhost:%s", server.getPort());
+        WebClient.Builder builder = WebClient.builder().baseUrl(baseUrl);
+        if (recorder != null) {
+            builder.filter(recorder.upstreamFilter());
+        }
+        AgenticRagMcpTools tools = new AgenticRagMcpTools(builder.build(),
+                new AdmissionScheduler(new AdmissionProperties(), new SimpleMeterRegistry()),
+                new PayloadLogger(new PayloadLoggingProperties()),
+                new RetryBudget(new RetryProperties(), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(tools, "agenticRagBaseUrl", baseUrl);
+        ReflectionTestUtils.setField(tools, "timeout", Duration.ofSeconds(10));
+        return tools;
+    }
+
+    private static Map<String, ToolCallback> callbacks(ToolCallbackProvider provider) {
+        Map<String, ToolCallback> callbacks = new HashMap<>();
+        for (var callback : provider.getToolCallbacks()) {
+            callbacks.put(callback.getName(), (ToolCallback) callback);
+        }
+        return callbacks;
+    }
+
+    private static long span(List<TrafficRecorder.Entry> toolCalls) {
+        long first = Long.MAX_VALUE;
+        long last = 0;
+        for (TrafficRecorder.Entry call : toolCalls) {
+            first = Math.min(first, call.timestampMillis() * 1_000_000);
+            last = Math.max(last, call.timestampMillis() * 1_000_000 + call.durationNanos());
+        }
+        return Math.max(1, last - first);
+    }
+
+    private static void report(String name, long recordedNanos, long replayedNanos) {
+        System.out.printf("%s延迟: 录制 %.1fms，回放 %.1fms，变化 %+.1f%%%n", name,
+                recordedNanos / 1e6, replayedNanos / 1e6, delta(recordedNanos, replayedNanos));
+    }
+
+    private static double delta(double before, double after) {
+        return before == 0 ? 0 : (after - before) * 100 / before;
+    }
+
+    private static long percentile(List<Long> values, double percentile) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.min(sorted.size() - 1, Math.max(0, index)));
+    }
+
+    /**
+     * 按路径与查询串返回录制的上游响应及其耗时，同一请求多次录制时依次返回并循环使用
+     */
+    private static final class RecordedResponseDispatcher extends Dispatcher {
+
+        private final Map<String, Deque<TrafficRecorder.Entry>> responses = new ConcurrentHashMap<>();
+
+        RecordedResponseDispatcher(List<TrafficRecorder.Entry> entries) {
+            for (TrafficRecorder.Entry entry : entries) {
+                if (entry.type() == TrafficRecorder.Type.UPSTREAM) {
+                    responses.computeIfAbsent(entry.request(), key -> new ArrayDeque<>()).add(entry);
+                }
+            }
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            Deque<TrafficRecorder.Entry> recorded = responses.get(request.getPath());
+            if (recorded == null) {
+                return new MockResponse().setResponseCode(404);
+            }
+            TrafficRecorder.Entry entry;
+            synchronized (recorded) {
+                entry = recorded.pollFirst();
+                recorded.addLast(entry);
+            }
+            return new MockResponse()
+                    .setResponseCode(entry.status())
+                    .setBody(entry.response() == null ? "" : entry.response())
+                    .addHeader("Content-Type", "application/json; charset=UTF-8")
+                    .setBodyDelay(entry.durationNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
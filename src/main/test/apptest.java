@@ -1,6 +1,10 @@
 package cn.iocoder.boot.mcp.service;
 
+import cn.iocoder.boot.mcp.config.AdmissionProperties;
+import cn.iocoder.boot.mcp.config.PayloadLoggingProperties;
+import cn.iocoder.boot.mcp.config.RetryProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
@@ -11,12 +15,16 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -42,20 +50,33 @@ class AgenticRagMcpToolsTest {
         mockWebServer = new MockWebServer();
         mockWebServer.start();
         
-        // 创建WebClient指向Mock服务器
+        // 创建测试对象，重试单独测试，其余用例关闭重试
+        RetryProperties retryProperties = new RetryProperties();
+        retryProperties.setEnabled(false);
+        agenticRagMcpTools = newTools(retryProperties, new SimpleMeterRegistry());
+        
+        objectMapper = new ObjectMapper();
+    }
+
+    private AgenticRagMcpTools newTools(RetryProperties retryProperties, SimpleMeterRegistry meterRegistry) {
+        return newTools(retryProperties, new AdmissionProperties(), meterRegistry);
+    }
+
+    private AgenticRagMcpTools newTools(RetryProperties retryProperties, AdmissionProperties admissionProperties,
+                                        SimpleMeterRegistry meterRegistry) {
         String baseUrl = String.format("http://localhost:%s", mockWebServer.getPort());
         WebClient webClient = WebClient.builder()
                 .baseUrl(baseUrl)
                 .build();
-        
-        // 创建测试对象
-        agenticRagMcpTools = new AgenticRagMcpTools(webClient);
+        AgenticRagMcpTools tools = new AgenticRagMcpTools(webClient,
+                new AdmissionScheduler(admissionProperties, meterRegistry),
+                new PayloadLogger(new PayloadLoggingProperties()),
+                new RetryBudget(retryProperties, meterRegistry));
         
         // 使用反射设置私有字段
-        ReflectionTestUtils.setField(agenticRagMcpTools, "agenticRagBaseUrl", baseUrl);
-        ReflectionTestUtils.setField(agenticRagMcpTools, "timeout", Duration.ofSeconds(10));
-        
-        objectMapper = new ObjectMapper();
+        ReflectionTestUtils.setField(tools, "agenticRagBaseUrl", baseUrl);
+        ReflectionTestUtils.setField(tools, "timeout", Duration.ofSeconds(10));
+        return tools;
     }
 
     @AfterEach
@@ -234,4 +255,172 @@ class AgenticRagMcpToolsTest {
         RecordedRequest request = mockWebServer.takeRequest();
         assertTrue(request.getPath().contains("/query"), "请求路径应包含/query");
     }
-} 
+
+    @Test
+    void testQueryWithAgenticRag_截止时间透传() throws InterruptedException {
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("{\"status\":\"success\"}")
+                .addHeader("Content-Type", "application/json")
+                .setResponseCode(200));
+
+        ToolInvocationContext context = ToolInvocationContext.of(ToolInvocationContext.Priority.INTERACTIVE, "t1")
+                .withBudget(Duration.ofSeconds(2));
+        String result = ToolInvocationContext.callWith(context, () -> agenticRagMcpTools.queryWithAgenticRag("测试"));
+
+        assertTrue(result.contains("success"), "预算内的调用应正常返回");
+        RecordedRequest request = mockWebServer.takeRequest();
+        assertEquals(String.valueOf(context.getDeadline().getAsLong()), request.getHeader(AgenticRagMcpTools.DEADLINE_HEADER));
+        long timeoutMillis = Long.parseLong(request.getHeader(AgenticRagMcpTools.TIMEOUT_HEADER));
+        assertTrue(timeoutMillis > 0 && timeoutMillis <= 2000, "剩余预算应不超过截止时间");
+    }
+
+    @Test
+    void testQueryWithAgenticRag_取消立即中止() {
+        // 上游5秒后才响应，取消后不应等待
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("{\"status\":\"success\"}")
+                .setBodyDelay(5, TimeUnit.SECONDS)
+                .setResponseCode(200));
+
+        ToolInvocationContext context = ToolInvocationContext.of(ToolInvocationContext.Priority.INTERACTIVE, "t1");
+        long start = System.nanoTime();
+        String result = ToolInvocationContext.callWith(context, () -> agenticRagMcpTools.queryReactive("测试"))
+                .doOnSubscribe(s -> Schedulers.parallel()
+                        .schedule(context::cancel, 200, TimeUnit.MILLISECONDS))
+                .block();
+
+        assertEquals(AgenticRagMcpTools.QUERY_CANCELLED, result);
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000, "取消后应立即返回");
+    }
+
+    @Test
+    void testQueryWithAgenticRag_请求超过截止时间() {
+        // 上游5秒后才响应，截止时间早于配置超时
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("{\"status\":\"success\"}")
+                .setBodyDelay(5, TimeUnit.SECONDS)
+                .setResponseCode(200));
+
+        ToolInvocationContext context = ToolInvocationContext.of(ToolInvocationContext.Priority.INTERACTIVE, "t1")
+                .withBudget(Duration.ofMillis(500));
+        Mono<String> query = ToolInvocationContext.callWith(context, () -> agenticRagMcpTools.queryReactive("测试"));
+        long start = System.nanoTime();
+        // 延迟订阅，使外层按组装时预算计时的超时晚于请求本身的超时触发
+        String result = Mono.delay(Duration.ofMillis(200)).then(query).block();
+
+        assertEquals(AgenticRagMcpTools.QUERY_DEADLINE_EXCEEDED, result, "截止时间导致的超时不应报告为调用失败");
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000, "应在截止时间到达后立即返回");
+    }
+
+    @Test
+    void testQueryWithAgenticRag_瞬时错误重试() throws InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RetryProperties retryProperties = new RetryProperties();
+        retryProperties.setInitialBackoff(Duration.ofMillis(10));
+        AgenticRagMcpTools tools = newTools(retryProperties, meterRegistry);
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("{\"status\":\"success\"}")
+                .addHeader("Content-Type", "application/json")
+                .setResponseCode(200));
+
+        String result = tools.queryWithAgenticRag("测试");
+
+        assertTrue(result.contains("success"), "503后重试应成功");
+        assertEquals(2, mockWebServer.getRequestCount());
+        assertEquals(1.0, meterRegistry.counter("mcp.agenticrag.retries", "route", "/query", "result", "retried").count());
+    }
+
+    @Test
+    void testQueryWithAgenticRag_遵循RetryAfter() {
+        RetryProperties retryProperties = new RetryProperties();
+        retryProperties.setInitialBackoff(Duration.ofMillis(10));
+        AgenticRagMcpTools tools = newTools(retryProperties, new SimpleMeterRegistry());
+        mockWebServer.enqueue(new MockResponse().setResponseCode(429).addHeader("Retry-After", "1"));
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("{\"status\":\"success\"}")
+                .addHeader("Content-Type", "application/json")
+                .setResponseCode(200));
+
+        long start = System.nanoTime();
+        String result = tools.queryWithAgenticRag("测试");
+
+        assertTrue(result.contains("success"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 1000, "应至少等待Retry-After指定的时间");
+    }
+
+    @Test
+    void testQueryWithAgenticRag_重试预算耗尽() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RetryProperties retryProperties = new RetryProperties();
+        retryProperties.setBudgetRatio(0);
+        retryProperties.setMinRetriesPerSecond(0);
+        AgenticRagMcpTools tools = newTools(retryProperties, meterRegistry);
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+
+        String result = tools.queryWithAgenticRag("测试");
+
+        assertEquals(AgenticRagMcpTools.QUERY_FAILED, result);
+        assertEquals(1, mockWebServer.getRequestCount(), "预算耗尽时不应重试");
+        assertEquals(1.0, meterRegistry.counter("mcp.agenticrag.retries", "route", "/query", "result", "budget-rejected").count());
+    }
+
+    @Test
+    void testQueryWithAgenticRag_重试时重新计算剩余预算() throws InterruptedException {
+        RetryProperties retryProperties = new RetryProperties();
+        retryProperties.setInitialBackoff(Duration.ofMillis(10));
+        AgenticRagMcpTools tools = newTools(retryProperties, new SimpleMeterRegistry());
+        mockWebServer.enqueue(new MockResponse().setResponseCode(429).addHeader("Retry-After", "1"));
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("{\"status\":\"success\"}")
+                .addHeader("Content-Type", "application/json")
+                .setResponseCode(200));
+
+        ToolInvocationContext context = ToolInvocationContext.of(ToolInvocationContext.Priority.INTERACTIVE, "t1")
+                .withBudget(Duration.ofSeconds(3));
+        String result = ToolInvocationContext.callWith(context, () -> tools.queryWithAgenticRag("测试"));
+
+        assertTrue(result.contains("success"));
+        long first = Long.parseLong(mockWebServer.takeRequest().getHeader(AgenticRagMcpTools.TIMEOUT_HEADER));
+        long second = Long.parseLong(mockWebServer.takeRequest().getHeader(AgenticRagMcpTools.TIMEOUT_HEADER));
+        assertTrue(second <= first - 1000, "重试请求应携带扣除退避时间后的剩余预算: first=" + first + ", second=" + second);
+    }
+
+    @Test
+    void testQueryWithAgenticRag_退避超过剩余预算不重试() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AgenticRagMcpTools tools = newTools(new RetryProperties(), meterRegistry);
+        mockWebServer.enqueue(new MockResponse().setResponseCode(429).addHeader("Retry-After", "2"));
+
+        ToolInvocationContext context = ToolInvocationContext.of(ToolInvocationContext.Priority.INTERACTIVE, "t1")
+                .withBudget(Duration.ofSeconds(1));
+        long start = System.nanoTime();
+        String result = ToolInvocationContext.callWith(context, () -> tools.queryWithAgenticRag("测试"));
+
+        assertEquals(AgenticRagMcpTools.QUERY_FAILED, result);
+        assertEquals(1, mockWebServer.getRequestCount(), "退避时间超过剩余预算时不应重试");
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1000, "不应等待退避");
+        assertEquals(1.0, meterRegistry.counter("mcp.agenticrag.retries", "route", "/query", "result", "deadline-too-close").count());
+    }
+
+    @Test
+    void testQueryWithAgenticRag_退避期间释放执行许可() throws InterruptedException {
+        RetryProperties retryProperties = new RetryProperties();
+        retryProperties.setInitialBackoff(Duration.ofMillis(10));
+        AdmissionProperties admissionProperties = new AdmissionProperties();
+        admissionProperties.setMaxConcurrent(1);
+        AgenticRagMcpTools tools = newTools(retryProperties, admissionProperties, new SimpleMeterRegistry());
+        mockWebServer.enqueue(new MockResponse().setResponseCode(429).addHeader("Retry-After", "1"));
+        mockWebServer.enqueue(new MockResponse().setBody("second").setResponseCode(200));
+        mockWebServer.enqueue(new MockResponse().setBody("first").setResponseCode(200));
+
+        CompletableFuture<String> first = tools.queryReactive("first").toFuture();
+        mockWebServer.takeRequest();
+        long start = System.nanoTime();
+        String second = tools.queryReactive("second").block(Duration.ofSeconds(5));
+
+        assertEquals("second", second);
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 900, "唯一的执行许可不应在退避期间被占用");
+        assertEquals("first", first.join());
+    }
+}